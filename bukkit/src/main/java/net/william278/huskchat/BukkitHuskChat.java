@@ -35,16 +35,20 @@ import net.william278.huskchat.config.Settings;
 import net.william278.huskchat.discord.DiscordHook;
 import net.william278.huskchat.event.BukkitEventProvider;
 import net.william278.huskchat.filter.ChatFilter;
+import net.william278.huskchat.filter.FilterChain;
 import net.william278.huskchat.getter.DataGetter;
 import net.william278.huskchat.getter.DefaultDataGetter;
 import net.william278.huskchat.getter.LuckPermsDataGetter;
 import net.william278.huskchat.listener.BukkitListener;
 import net.william278.huskchat.placeholders.BukkitPlaceholderAPIReplacer;
 import net.william278.huskchat.placeholders.DefaultReplacer;
+import net.william278.huskchat.placeholders.PlaceholderPipeline;
 import net.william278.huskchat.placeholders.PlaceholderReplacer;
 import net.william278.huskchat.user.BukkitUser;
 import net.william278.huskchat.user.OnlineUser;
+import net.william278.huskchat.user.OnlineUserRegistry;
 import net.william278.huskchat.user.UserCache;
+import net.william278.huskchat.user.UserCacheWriter;
 import org.bukkit.command.CommandMap;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.jetbrains.annotations.NotNull;
@@ -61,7 +65,11 @@ public class BukkitHuskChat extends JavaPlugin implements HuskChat, BukkitEventP
     private MorePaperLib morePaperLib;
     private BukkitAudiences audiences;
     private final List<ChatFilter> filtersAndReplacers = new ArrayList<>();
+    @Setter
+    private FilterChain.Compiled filterChains = FilterChain.Compiled.EMPTY;
     private final List<PlaceholderReplacer> placeholderReplacers = new ArrayList<>();
+    private PlaceholderPipeline placeholderPipeline;
+    private final OnlineUserRegistry userRegistry = new OnlineUserRegistry();
 
     @Setter
     private Settings settings;
@@ -74,6 +82,8 @@ public class BukkitHuskChat extends JavaPlugin implements HuskChat, BukkitEventP
     @Setter
     private UserCache.Editor userCache;
     @Setter
+    private UserCacheWriter userCacheWriter;
+    @Setter
     @Getter(AccessLevel.NONE)
     private DiscordHook discordHook;
     private DataGetter dataGetter;
@@ -98,12 +108,13 @@ public class BukkitHuskChat extends JavaPlugin implements HuskChat, BukkitEventP
 
         // Setup player data getter
         if (isPluginPresent("LuckPerms")) {
-            this.dataGetter = new LuckPermsDataGetter();
+            this.dataGetter = new LuckPermsDataGetter(this);
         } else {
             this.dataGetter = new DefaultDataGetter();
         }
 
         // Setup placeholder parser
+        this.placeholderPipeline = new PlaceholderPipeline(getSettings().getPlaceholder());
         this.placeholderReplacers.add(new DefaultReplacer(this));
         if (getSettings().getPlaceholder().isUsePapi() && isPluginPresent("PlaceholderAPI")) {
             this.placeholderReplacers.add(new BukkitPlaceholderAPIReplacer());
@@ -111,6 +122,10 @@ public class BukkitHuskChat extends JavaPlugin implements HuskChat, BukkitEventP
 
         // Register events
         getServer().getPluginManager().registerEvents(new BukkitListener(this), this);
+        getServer().getOnlinePlayers().forEach(player -> {
+            final BukkitUser user = BukkitUser.adapt(player, this);
+            getUserRegistry().setServer(user, user.getServerName());
+        });
 
         // Register player status listener
         registerPlayerStatusListener();
@@ -133,6 +148,17 @@ public class BukkitHuskChat extends JavaPlugin implements HuskChat, BukkitEventP
         log(Level.INFO, "Enabled HuskChat version " + this.getVersion());
     }
 
+    @Override
+    public void onDisable() {
+        // Flush pending user cache changes and stop filters
+        this.closeUserCache();
+        this.closeFilters();
+        if (placeholderPipeline != null) {
+            placeholderPipeline.close();
+        }
+        placeholderReplacers.forEach(PlaceholderReplacer::close);
+    }
+
     @Override
     public Optional<DiscordHook> getDiscordHook() {
         return Optional.ofNullable(discordHook);
@@ -230,6 +256,10 @@ public class BukkitHuskChat extends JavaPlugin implements HuskChat, BukkitEventP
             new net.william278.huskchat.listener.BukkitPlayerStatusListener(this);
         getServer().getPluginManager().registerEvents(statusListener, this);
 
+        // 每隔一段时间批量发送状态变化
+        final long flushInterval = Math.max(1, getSettings().getPlayerStatus().getFlushInterval());
+        getServer().getScheduler().runTaskTimer(this, statusListener::flush, flushInterval, flushInterval);
+
         // 注册为插件消息监听器
         getServer().getMessenger().registerIncomingPluginChannel(this, "huskchat:player_status", statusListener);
     }
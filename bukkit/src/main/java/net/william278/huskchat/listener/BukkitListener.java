@@ -59,6 +59,7 @@ public class BukkitListener extends PlayerListener implements Listener {
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
     public void onPlayerJoin(PlayerJoinEvent e) {
         final BukkitUser player = BukkitUser.adapt(e.getPlayer(), plugin);
+        plugin.getUserRegistry().setServer(player, player.getServerName());
         super.handlePlayerSwitchServer(player, player.getServerName());
         if (plugin.getSettings().getJoinAndQuitMessages().getJoin().isEnabled()
                 || !plugin.getSettings().getJoinAndQuitMessages().getBroadcastScope().isPassThrough()) {
@@ -73,7 +74,9 @@ public class BukkitListener extends PlayerListener implements Listener {
                 || !plugin.getSettings().getJoinAndQuitMessages().getBroadcastScope().isPassThrough()) {
             e.setQuitMessage(null);
         }
-        super.handlePlayerQuit(BukkitUser.adapt(e.getPlayer(), plugin));
+        final BukkitUser player = BukkitUser.adapt(e.getPlayer(), plugin);
+        super.handlePlayerQuit(player);
+        plugin.getUserRegistry().unregister(player);
     }
 
 }
@@ -24,6 +24,12 @@ import net.william278.huskchat.event.PlayerLocationChangeEvent;
 import net.william278.huskchat.event.PlayerRespawnEvent;
 import net.william278.huskchat.event.PlayerStatusChangeEvent;
 import net.william278.huskchat.network.PlayerStatusMessage;
+import net.william278.huskchat.config.Settings;
+import net.william278.huskchat.network.StatusBatcher;
+import net.william278.huskchat.network.StatusCodec;
+import net.william278.huskchat.network.StatusFrame;
+import net.william278.huskchat.network.StatusLedger;
+import net.william278.huskchat.network.StatusPayload;
 import net.william278.huskchat.user.BukkitPlayerLocation;
 import net.william278.huskchat.user.BukkitUser;
 import net.william278.huskchat.user.OnlineUser;
@@ -34,13 +40,16 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.*;
+import org.bukkit.plugin.messaging.Messenger;
 import org.bukkit.plugin.messaging.PluginMessageListener;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 /**
  * Bukkit平台的玩家状态监听器
@@ -49,11 +58,22 @@ import java.util.concurrent.ConcurrentHashMap;
 public class BukkitPlayerStatusListener implements Listener, PluginMessageListener {
 
     private final BukkitHuskChat plugin;
+    private final StatusCodec codec;
+    private final StatusBatcher batcher;
+    private final StatusLedger ledger;
+    private volatile StatusPayload.Subscription subscription = StatusPayload.Subscription.ALL;
     private final Map<UUID, PlayerLocationChangeEvent.PlayerLocation> lastLocations = new ConcurrentHashMap<>();
     private final Map<UUID, Double> lastHealthValues = new ConcurrentHashMap<>();
 
     public BukkitPlayerStatusListener(@NotNull BukkitHuskChat plugin) {
         this.plugin = plugin;
+        final Settings.PlayerStatusSettings settings = plugin.getSettings().getPlayerStatus();
+        this.codec = new StatusCodec(plugin.getGson(), settings.isUseJson());
+        this.batcher = new StatusBatcher(Map.of(
+            PlayerStatusMessage.MessageType.LOCATION_CHANGE, settings.getLocationInterval(),
+            PlayerStatusMessage.MessageType.HEALTH_CHANGE, settings.getHealthInterval()
+        ));
+        this.ledger = new StatusLedger(settings.getSyncRetention());
     }
 
     // ========== Bukkit事件监听 / Bukkit Event Listeners ==========
@@ -92,6 +112,7 @@ public class BukkitPlayerStatusListener implements Listener, PluginMessageListen
         PlayerLocationChangeEvent.PlayerLocation location = BukkitPlayerLocation.from(plugin.getServerName(), player.getLocation());
         lastLocations.put(player.getUniqueId(), location);
         lastHealthValues.put(player.getUniqueId(), player.getHealth());
+        ledger.arrive(player.getUniqueId());
 
         // 请求状态同步
         requestStatusSyncFromProxy(huskPlayer);
@@ -102,6 +123,8 @@ public class BukkitPlayerStatusListener implements Listener, PluginMessageListen
         UUID playerId = event.getPlayer().getUniqueId();
         lastLocations.remove(playerId);
         lastHealthValues.remove(playerId);
+        batcher.forget(playerId);
+        ledger.depart(playerId, System.currentTimeMillis());
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
@@ -220,10 +243,7 @@ public class BukkitPlayerStatusListener implements Listener, PluginMessageListen
         }
 
         try {
-            String json = new String(message);
-            PlayerStatusMessage statusMessage = plugin.getGson().fromJson(json, PlayerStatusMessage.class);
-
-            handlePlayerStatusMessage(statusMessage);
+            handlePlayerStatusMessage(codec.decode(message));
         } catch (Exception e) {
             plugin.log(java.util.logging.Level.WARNING, "Failed to handle plugin message: " + e.getMessage());
         }
@@ -231,12 +251,24 @@ public class BukkitPlayerStatusListener implements Listener, PluginMessageListen
 
     private void handlePlayerStatusMessage(@NotNull PlayerStatusMessage message) {
         switch (message.getMessageType()) {
+            case SUBSCRIPTION -> handleSubscription(message);
             case SYNC_REQUEST -> handleSyncRequest(message);
             case STATUS_UPDATE -> handleStatusUpdateFromProxy(message);
         }
     }
 
+    private void handleSubscription(@NotNull PlayerStatusMessage message) {
+        StatusPayload.Subscription subscription = message.getPayload(StatusPayload.Subscription.class);
+        if (subscription != null) {
+            this.subscription = subscription;
+        }
+    }
+
     private void handleSyncRequest(@NotNull PlayerStatusMessage message) {
+        if (!subscription.includes(PlayerStatusMessage.MessageType.SYNC_RESPONSE)) {
+            return;
+        }
+
         Player player = plugin.getServer().getPlayer(message.getPlayerUuid());
         if (player == null) {
             return;
@@ -245,23 +277,36 @@ public class BukkitPlayerStatusListener implements Listener, PluginMessageListen
         OnlineUser huskPlayer = BukkitUser.adapt(player, plugin);
 
         // 收集所有状态信息
-        Map<String, Object> allStatuses = new HashMap<>();
-        allStatuses.put("health", player.getHealth());
-        allStatuses.put("max_health", player.getMaxHealth());
-        allStatuses.put("food_level", player.getFoodLevel());
-        allStatuses.put("experience_level", player.getLevel());
-        allStatuses.put("game_mode", player.getGameMode().name());
-        allStatuses.put("sneaking", player.isSneaking());
-        allStatuses.put("flying", player.isFlying());
-        allStatuses.put("world", player.getWorld().getName());
-
-        // 发送同步响应
+        // 只收集代理服务器订阅的状态
+        Map<PlayerStatusChangeEvent.StatusType, Object> allStatuses = new EnumMap<>(PlayerStatusChangeEvent.StatusType.class);
+        putSubscribed(allStatuses, PlayerStatusChangeEvent.StatusType.HEALTH, player::getHealth);
+        putSubscribed(allStatuses, PlayerStatusChangeEvent.StatusType.MAX_HEALTH, player::getMaxHealth);
+        putSubscribed(allStatuses, PlayerStatusChangeEvent.StatusType.FOOD_LEVEL, player::getFoodLevel);
+        putSubscribed(allStatuses, PlayerStatusChangeEvent.StatusType.EXPERIENCE_LEVEL, player::getLevel);
+        putSubscribed(allStatuses, PlayerStatusChangeEvent.StatusType.GAME_MODE, () -> player.getGameMode().name());
+        putSubscribed(allStatuses, PlayerStatusChangeEvent.StatusType.SNEAKING, player::isSneaking);
+        putSubscribed(allStatuses, PlayerStatusChangeEvent.StatusType.FLYING, player::isFlying);
+        putSubscribed(allStatuses, PlayerStatusChangeEvent.StatusType.WORLD, () -> player.getWorld().getName());
+
+        // 只发送代理服务器确认的版本之后变化的状态
+        StatusPayload.SyncRequest request = message.getPayload(StatusPayload.SyncRequest.class);
+        StatusPayload.SyncResponse changes = ledger.sync(player.getUniqueId(), allStatuses,
+            request != null ? request : StatusPayload.SyncRequest.FULL);
+
+        // 发送同步响应，使用代理服务器对本服务器的命名，以便代理服务器匹配请求
         PlayerStatusMessage response = PlayerStatusMessage.createSyncResponse(
-            huskPlayer.getUuid(), huskPlayer.getName(), plugin.getServerName(), allStatuses);
+            huskPlayer.getUuid(), huskPlayer.getName(), message.getServerName(), changes);
 
         sendMessageToProxy(player, response);
     }
 
+    private void putSubscribed(@NotNull Map<PlayerStatusChangeEvent.StatusType, Object> statuses,
+                               @NotNull PlayerStatusChangeEvent.StatusType statusType, @NotNull Supplier<Object> value) {
+        if (subscription.includes(statusType)) {
+            statuses.put(statusType, value.get());
+        }
+    }
+
     private void handleStatusUpdateFromProxy(@NotNull PlayerStatusMessage message) {
         // 处理来自代理服务器的状态更新
         Player player = plugin.getServer().getPlayer(message.getPlayerUuid());
@@ -272,19 +317,9 @@ public class BukkitPlayerStatusListener implements Listener, PluginMessageListen
         OnlineUser huskPlayer = BukkitUser.adapt(player, plugin);
 
         // 更新本地状态（如果需要）
-        String statusTypeKey = message.getData("status_type", String.class);
-        Object value = message.getData("value");
-
-        if (statusTypeKey != null && value != null) {
-            try {
-                PlayerStatusChangeEvent.StatusType statusType = PlayerStatusChangeEvent.StatusType.fromKey(statusTypeKey);
-
-                if (huskPlayer instanceof BukkitUser bukkitUser) {
-                    bukkitUser.updateStatus(statusType, value);
-                }
-            } catch (Exception e) {
-                plugin.log(java.util.logging.Level.WARNING, "Failed to update status from proxy: " + e.getMessage());
-            }
+        StatusPayload.StatusUpdate update = message.getPayload(StatusPayload.StatusUpdate.class);
+        if (update != null && update.value() != null && huskPlayer instanceof BukkitUser bukkitUser) {
+            bukkitUser.updateStatus(update.statusType(), update.value());
         }
     }
 
@@ -292,25 +327,24 @@ public class BukkitPlayerStatusListener implements Listener, PluginMessageListen
 
     private void sendLocationChangeToProxy(@NotNull OnlineUser player, @NotNull PlayerLocationChangeEvent.PlayerLocation from,
                                          @NotNull PlayerLocationChangeEvent.PlayerLocation to) {
-        Map<String, Object> locationData = Map.of(
-            "from_world", from.getWorld(),
-            "from_x", from.getX(),
-            "from_y", from.getY(),
-            "from_z", from.getZ(),
-            "to_world", to.getWorld(),
-            "to_x", to.getX(),
-            "to_y", to.getY(),
-            "to_z", to.getZ()
-        );
+        if (!subscription.includes(PlayerStatusMessage.MessageType.LOCATION_CHANGE)) {
+            return;
+        }
 
         PlayerStatusMessage message = PlayerStatusMessage.createLocationChange(
-            player.getUuid(), player.getName(), plugin.getServerName(), locationData);
+            player.getUuid(), player.getName(), plugin.getServerName(),
+            new StatusPayload.Position(from.getWorld(), from.getX(), from.getY(), from.getZ()),
+            new StatusPayload.Position(to.getWorld(), to.getX(), to.getY(), to.getZ()));
 
         sendMessageToProxy(((BukkitUser) player).getPlayer(), message);
     }
 
     private void sendHealthChangeToProxy(@NotNull OnlineUser player, double previousHealth, double newHealth,
                                        double maxHealth, @NotNull String reason) {
+        if (!subscription.includes(PlayerStatusMessage.MessageType.HEALTH_CHANGE)) {
+            return;
+        }
+
         PlayerStatusMessage message = PlayerStatusMessage.createHealthChange(
             player.getUuid(), player.getName(), plugin.getServerName(),
             previousHealth, newHealth, maxHealth, reason);
@@ -319,31 +353,34 @@ public class BukkitPlayerStatusListener implements Listener, PluginMessageListen
     }
 
     private void sendPlayerDeathToProxy(@NotNull OnlineUser player, OnlineUser killer, String deathMessage) {
-        Map<String, Object> data = new HashMap<>();
-        data.put("death_message", deathMessage);
-        if (killer != null) {
-            data.put("killer", killer.getName());
+        if (!subscription.includes(PlayerStatusMessage.MessageType.PLAYER_DEATH)) {
+            return;
         }
 
-        PlayerStatusMessage message = new PlayerStatusMessage(
-            PlayerStatusMessage.MessageType.PLAYER_DEATH,
-            player.getUuid(), player.getName(), plugin.getServerName(), data);
+        PlayerStatusMessage message = PlayerStatusMessage.createPlayerDeath(
+            player.getUuid(), player.getName(), plugin.getServerName(),
+            deathMessage, killer != null ? killer.getName() : null);
 
         sendMessageToProxy(((BukkitUser) player).getPlayer(), message);
     }
 
     private void sendPlayerRespawnToProxy(@NotNull OnlineUser player, @NotNull String reason) {
-        Map<String, Object> data = Map.of("reason", reason);
+        if (!subscription.includes(PlayerStatusMessage.MessageType.PLAYER_RESPAWN)) {
+            return;
+        }
 
-        PlayerStatusMessage message = new PlayerStatusMessage(
-            PlayerStatusMessage.MessageType.PLAYER_RESPAWN,
-            player.getUuid(), player.getName(), plugin.getServerName(), data);
+        PlayerStatusMessage message = PlayerStatusMessage.createPlayerRespawn(
+            player.getUuid(), player.getName(), plugin.getServerName(), reason);
 
         sendMessageToProxy(((BukkitUser) player).getPlayer(), message);
     }
 
     private void sendStatusUpdateToProxy(@NotNull OnlineUser player, @NotNull PlayerStatusChangeEvent.StatusType statusType,
                                        @NotNull Object value, @NotNull String reason) {
+        if (!subscription.includesUpdate(statusType)) {
+            return;
+        }
+
         PlayerStatusMessage message = PlayerStatusMessage.createStatusUpdate(
             player.getUuid(), player.getName(), plugin.getServerName(), statusType, value, reason);
 
@@ -351,6 +388,10 @@ public class BukkitPlayerStatusListener implements Listener, PluginMessageListen
     }
 
     private void requestStatusSyncFromProxy(@NotNull OnlineUser player) {
+        if (!subscription.includes(PlayerStatusMessage.MessageType.SYNC_REQUEST)) {
+            return;
+        }
+
         PlayerStatusMessage message = PlayerStatusMessage.createSyncRequest(
             player.getUuid(), player.getName(), plugin.getServerName());
 
@@ -358,9 +399,42 @@ public class BukkitPlayerStatusListener implements Listener, PluginMessageListen
     }
 
     private void sendMessageToProxy(@NotNull Player player, @NotNull PlayerStatusMessage message) {
+        // 在下一次刷新时批量发送
+        batcher.record(message);
+    }
+
+    /**
+     * 将累积的状态变化作为一帧发送到代理服务器
+     * Send the accumulated status changes to the proxy as a frame
+     */
+    public void flush() {
+        // Plugin messages need a player connection to the proxy to travel over; without one, keep the changes
+        // pending rather than draining them, as the batcher would then treat them as sent
+        final Player carrier = plugin.getServer().getOnlinePlayers().stream().findFirst().orElse(null);
+        if (carrier == null) {
+            return;
+        }
+
+        final StatusFrame frame = batcher.drain(plugin.getServerName(), System.currentTimeMillis());
+        if (frame == null) {
+            return;
+        }
+        sendFrame(carrier, frame);
+    }
+
+    private void sendFrame(@NotNull Player carrier, @NotNull StatusFrame frame) {
         try {
-            byte[] data = plugin.getGson().toJson(message).getBytes();
-            player.sendPluginMessage(plugin, "huskchat:player_status", data);
+            byte[] data = codec.encode(frame);
+            if (data.length > Messenger.MAX_MESSAGE_SIZE && frame.messages().size() > 1) {
+                // Split frames that are too large for one plugin message
+                final List<PlayerStatusMessage> messages = frame.messages();
+                final int half = messages.size() / 2;
+                sendFrame(carrier, new StatusFrame(frame.serverName(), frame.timestamp(), messages.subList(0, half)));
+                sendFrame(carrier, new StatusFrame(frame.serverName(), frame.timestamp(),
+                    messages.subList(half, messages.size())));
+                return;
+            }
+            carrier.sendPluginMessage(plugin, "huskchat:player_status", data);
         } catch (Exception e) {
             plugin.log(java.util.logging.Level.WARNING, "Failed to send message to proxy: " + e.getMessage());
         }
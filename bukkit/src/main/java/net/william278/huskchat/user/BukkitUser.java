@@ -52,9 +52,21 @@ public class BukkitUser extends OnlineUser {
         statusCache.put(PlayerStatusChangeEvent.StatusType.VANISHED, false);
     }
 
+    /**
+     * Adapts a bukkit {@link Player} to its canonical cross-platform {@link OnlineUser} object
+     *
+     * @param player {@link Player} to adapt
+     * @param plugin the plugin instance
+     * @return The registered {@link OnlineUser} object
+     */
     @NotNull
     public static BukkitUser adapt(@NotNull Player player, @NotNull HuskChat plugin) {
-        return new BukkitUser(player, plugin);
+        if (!player.isOnline()) {
+            return plugin.getUserRegistry().find(player.getUniqueId(), BukkitUser.class, user -> user.player == player)
+                    .orElseGet(() -> new BukkitUser(player, plugin));
+        }
+        return plugin.getUserRegistry().adapt(player.getUniqueId(), BukkitUser.class,
+                user -> user.player == player, () -> new BukkitUser(player, plugin));
     }
 
     @Override
@@ -75,11 +87,13 @@ public class BukkitUser extends OnlineUser {
 
     @Override
     public boolean hasPermission(@Nullable String node, boolean allowByDefault) {
-        if (node != null && player.isPermissionSet(node)) {
-            return player.hasPermission(node);
-        } else {
-            return allowByDefault || player.isOp();
-        }
+        return checkCachedPermission(node, allowByDefault, () -> {
+            if (node != null && player.isPermissionSet(node)) {
+                return player.hasPermission(node);
+            } else {
+                return allowByDefault || player.isOp();
+            }
+        });
     }
 
     @NotNull
@@ -38,17 +38,22 @@ import net.william278.huskchat.config.Settings;
 import net.william278.huskchat.discord.DiscordHook;
 import net.william278.huskchat.event.BungeeEventProvider;
 import net.william278.huskchat.filter.ChatFilter;
+import net.william278.huskchat.filter.FilterChain;
 import net.william278.huskchat.getter.BungeePermsDataGetter;
 import net.william278.huskchat.getter.DataGetter;
 import net.william278.huskchat.getter.DefaultDataGetter;
 import net.william278.huskchat.getter.LuckPermsDataGetter;
 import net.william278.huskchat.listener.BungeeListener;
+import net.william278.huskchat.listener.ChatMailbox;
 import net.william278.huskchat.placeholders.DefaultReplacer;
 import net.william278.huskchat.placeholders.PAPIProxyBridgeReplacer;
+import net.william278.huskchat.placeholders.PlaceholderPipeline;
 import net.william278.huskchat.placeholders.PlaceholderReplacer;
 import net.william278.huskchat.user.BungeeUser;
 import net.william278.huskchat.user.OnlineUser;
+import net.william278.huskchat.user.OnlineUserRegistry;
 import net.william278.huskchat.user.UserCache;
+import net.william278.huskchat.user.UserCacheWriter;
 import org.bstats.bungeecord.Metrics;
 import org.jetbrains.annotations.NotNull;
 
@@ -64,7 +69,16 @@ public final class BungeeHuskChat extends Plugin implements HuskChat, BungeeEven
     private static final int METRICS_ID = 11882;
 
     private final List<ChatFilter> filtersAndReplacers = new ArrayList<>();
+    @Setter
+    private FilterChain.Compiled filterChains = FilterChain.Compiled.EMPTY;
     private final List<PlaceholderReplacer> placeholderReplacers = new ArrayList<>();
+    private PlaceholderPipeline placeholderPipeline;
+    private ChatMailbox chatMailbox;
+    @Getter(AccessLevel.NONE)
+    private net.william278.huskchat.api.BungeeHuskChatExtendedAPI extendedAPI;
+    private final OnlineUserRegistry userRegistry = new OnlineUserRegistry();
+    @Getter(AccessLevel.NONE)
+    private final com.google.gson.Gson gson = new com.google.gson.Gson();
 
     @Getter(AccessLevel.NONE)
     private BungeeAudiences audiences;
@@ -79,6 +93,8 @@ public final class BungeeHuskChat extends Plugin implements HuskChat, BungeeEven
     @Setter
     private UserCache.Editor userCache;
     @Setter
+    private UserCacheWriter userCacheWriter;
+    @Setter
     @Getter(AccessLevel.NONE)
     private DiscordHook discordHook;
     private DataGetter dataGetter;
@@ -102,7 +118,7 @@ public final class BungeeHuskChat extends Plugin implements HuskChat, BungeeEven
 
         // Setup player data getter
         if (isPluginPresent("LuckPerms")) {
-            this.dataGetter = new LuckPermsDataGetter();
+            this.dataGetter = new LuckPermsDataGetter(this);
         } else {
             if (isPluginPresent("BungeePerms")) {
                 this.dataGetter = new BungeePermsDataGetter();
@@ -112,6 +128,7 @@ public final class BungeeHuskChat extends Plugin implements HuskChat, BungeeEven
         }
 
         // Setup placeholder parser
+        this.placeholderPipeline = new PlaceholderPipeline(getSettings().getPlaceholder());
         this.placeholderReplacers.add(new DefaultReplacer(this));
         if (getSettings().getPlaceholder().isUsePapi() && isPluginPresent("PAPIProxyBridge")) {
             this.placeholderReplacers.add(new PAPIProxyBridgeReplacer(this));
@@ -121,7 +138,8 @@ public final class BungeeHuskChat extends Plugin implements HuskChat, BungeeEven
         this.loadDiscordHook();
 
         // Register events
-        getProxy().getPluginManager().registerListener(this, new BungeeListener(this));
+        this.chatMailbox = new ChatMailbox(this, getSettings().getChatThreads());
+        getProxy().getPluginManager().registerListener(this, new BungeeListener(this, chatMailbox));
 
         // Register commands & channel shortcuts
         BungeeCommand.Type.registerAll(this);
@@ -136,6 +154,23 @@ public final class BungeeHuskChat extends Plugin implements HuskChat, BungeeEven
         log(Level.INFO, "Enabled HuskChat version " + this.getVersion());
     }
 
+    @Override
+    public void onDisable() {
+        // Flush pending user cache changes and stop filters
+        this.closeUserCache();
+        this.closeFilters();
+        if (placeholderPipeline != null) {
+            placeholderPipeline.close();
+        }
+        placeholderReplacers.forEach(PlaceholderReplacer::close);
+        if (chatMailbox != null) {
+            chatMailbox.close();
+        }
+        if (extendedAPI != null) {
+            extendedAPI.close();
+        }
+    }
+
 
     @NotNull
     @Override
@@ -183,8 +218,14 @@ public final class BungeeHuskChat extends Plugin implements HuskChat, BungeeEven
     @Override
     @NotNull
     public Collection<OnlineUser> getOnlinePlayersOnServer(@NotNull OnlineUser user) {
-        return ((BungeeUser) user).getPlayer().getServer().getInfo().getPlayers().stream()
-                .map(player -> (OnlineUser) BungeeUser.adapt(player, this)).toList();
+        final Optional<String> server = getUserRegistry().getServer(user.getUuid());
+        if (server.isPresent()) {
+            return getUserRegistry().getServerMembers(server.get());
+        }
+        return Optional.ofNullable(((BungeeUser) user).getPlayer().getServer())
+                .map(connected -> connected.getInfo().getPlayers().stream()
+                        .map(player -> (OnlineUser) BungeeUser.adapt(player, this)).toList())
+                .orElseGet(Collections::emptyList);
     }
 
     @Override
@@ -260,7 +301,7 @@ public final class BungeeHuskChat extends Plugin implements HuskChat, BungeeEven
      */
     @NotNull
     public com.google.gson.Gson getGson() {
-        return new com.google.gson.Gson();
+        return gson;
     }
 
     /**
@@ -288,8 +329,7 @@ public final class BungeeHuskChat extends Plugin implements HuskChat, BungeeEven
 
     private void registerExtendedAPI() {
         // Register Extended API
-        net.william278.huskchat.api.BungeeHuskChatExtendedAPI extendedAPI =
-            new net.william278.huskchat.api.BungeeHuskChatExtendedAPI(this);
+        this.extendedAPI = new net.william278.huskchat.api.BungeeHuskChatExtendedAPI(this);
         net.william278.huskchat.api.HuskChatExtendedAPI.setInstance(extendedAPI);
 
         // Register player status listener
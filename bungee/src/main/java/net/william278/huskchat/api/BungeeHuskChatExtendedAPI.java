@@ -25,13 +25,19 @@ import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.william278.huskchat.BungeeHuskChat;
 import net.william278.huskchat.event.*;
 import net.william278.huskchat.network.PlayerStatusMessage;
+import net.william278.huskchat.network.StatusCodec;
+import net.william278.huskchat.network.StatusPayload;
+import net.william278.huskchat.network.StatusReplica;
+import net.william278.huskchat.network.StatusRouter;
 import net.william278.huskchat.user.BungeeUser;
 import net.william278.huskchat.user.OnlineUser;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
@@ -45,16 +51,37 @@ public class BungeeHuskChatExtendedAPI extends HuskChatExtendedAPI {
     private final BungeeHuskChat plugin;
     private final ProxyServer proxyServer;
     private final Map<String, PlayerStatusMessage> pendingStatusUpdates = new ConcurrentHashMap<>();
+    private final StatusCodec statusCodec;
+    private final StatusRouter statusRouter;
+    private final StatusReplica statusReplica = new StatusReplica();
 
     public BungeeHuskChatExtendedAPI(@NotNull BungeeHuskChat plugin) {
         super(plugin);
         this.plugin = plugin;
+        this.statusCodec = new StatusCodec(plugin.getGson(), plugin.getSettings().getPlayerStatus().isUseJson());
+        this.statusRouter = StatusRouter.create(
+                uuid -> plugin.getUserRegistry().get(uuid).or(() -> plugin.getPlayer(uuid)),
+                plugin.getSettings().getPlayerStatus().getQueueSize(), plugin::log)
+            .handle(PlayerStatusMessage.MessageType.STATUS_UPDATE, this::handleStatusUpdate)
+            .handleQueued(PlayerStatusMessage.MessageType.HEALTH_CHANGE, this::handleHealthChange)
+            .handleQueued(PlayerStatusMessage.MessageType.LOCATION_CHANGE, this::handleLocationChange)
+            .handle(PlayerStatusMessage.MessageType.PLAYER_DEATH, this::handlePlayerDeath)
+            .handle(PlayerStatusMessage.MessageType.PLAYER_RESPAWN, this::handlePlayerRespawn)
+            .handle(PlayerStatusMessage.MessageType.SYNC_RESPONSE, this::handleSyncResponse);
         this.proxyServer = plugin.getProxy();
 
         // 注册插件消息通道
         registerPluginMessageChannels();
     }
 
+    /**
+     * 停止处理玩家状态消息
+     * Stop handling player status messages
+     */
+    public void close() {
+        statusRouter.close();
+    }
+
     private void registerPluginMessageChannels() {
         // 注册用于跨服务器通信的插件消息通道
         proxyServer.registerChannel("huskchat:player_status");
@@ -105,8 +132,8 @@ public class BungeeHuskChatExtendedAPI extends HuskChatExtendedAPI {
     }
 
     /**
-     * 广播状态更新到所有后端服务器
-     * Broadcast status update to all backend servers
+     * 广播状态更新到玩家所在的服务器和配置的服务器
+     * Broadcast status update to the server the player is on, and those configured to receive all updates
      *
      * @param player 玩家 / player
      * @param statusType 状态类型 / status type
@@ -118,9 +145,23 @@ public class BungeeHuskChatExtendedAPI extends HuskChatExtendedAPI {
         PlayerStatusMessage message = PlayerStatusMessage.createStatusUpdate(
             player.getUuid(), player.getName(), player.getServerName(), statusType, value, reason);
 
-        // 发送到所有后端服务器
+        // 只发送到玩家所在的服务器，以及配置为接收所有状态更新的服务器
+        final Set<String> servers = new HashSet<>(plugin.getSettings().getPlayerStatus().getUpdateServers());
+        servers.add(player.getServerName());
+        for (String serverName : servers) {
+            final ServerInfo server = proxyServer.getServerInfo(serverName);
+            if (server != null) {
+                sendPlayerStatusMessage(server, message);
+            }
+        }
+    }
+
+    @Override
+    protected void onStatusInterestChanged(@NotNull StatusPayload.Subscription subscription) {
+        // 将新的订阅发送到所有后端服务器
         for (ServerInfo server : proxyServer.getServers().values()) {
-            sendPlayerStatusMessage(server, message);
+            sendPlayerStatusMessage(server, PlayerStatusMessage.createSubscription(
+                new UUID(0, 0), "", server.getName(), subscription));
         }
     }
 
@@ -133,13 +174,24 @@ public class BungeeHuskChatExtendedAPI extends HuskChatExtendedAPI {
      */
     private void sendPlayerStatusMessage(@NotNull ServerInfo server, @NotNull PlayerStatusMessage message) {
         try {
-            byte[] data = plugin.getGson().toJson(message).getBytes();
+            byte[] data = statusCodec.encode(message);
             server.sendData("huskchat:player_status", data);
         } catch (Exception e) {
             plugin.log(java.util.logging.Level.WARNING, "Failed to send player status message to server " + server.getName(), e);
         }
     }
 
+    /**
+     * 获取玩家状态消息的编解码器
+     * Get the codec for player status messages
+     *
+     * @return 编解码器 / codec
+     */
+    @NotNull
+    public StatusCodec getStatusCodec() {
+        return statusCodec;
+    }
+
     /**
      * 处理来自后端服务器的玩家状态消息
      * Handle player status message from backend server
@@ -148,34 +200,17 @@ public class BungeeHuskChatExtendedAPI extends HuskChatExtendedAPI {
      * @param message 消息 / message
      */
     public void handlePlayerStatusMessage(@NotNull String serverName, @NotNull PlayerStatusMessage message) {
-        Optional<OnlineUser> playerOpt = plugin.getOnlinePlayers().stream()
-                .filter(user -> user.getUuid().equals(message.getPlayerUuid()))
-                .findFirst();
-
-        if (playerOpt.isEmpty()) {
-            return;
-        }
-
-        OnlineUser player = playerOpt.get();
-
-        switch (message.getMessageType()) {
-            case STATUS_UPDATE -> handleStatusUpdate(player, message);
-            case HEALTH_CHANGE -> handleHealthChange(player, message);
-            case LOCATION_CHANGE -> handleLocationChange(player, message);
-            case PLAYER_DEATH -> handlePlayerDeath(player, message);
-            case PLAYER_RESPAWN -> handlePlayerRespawn(player, message);
-            case SYNC_RESPONSE -> handleSyncResponse(player, message);
-        }
+        statusRouter.route(message);
     }
 
     private void handleStatusUpdate(@NotNull OnlineUser player, @NotNull PlayerStatusMessage message) {
-        String statusTypeKey = message.getData("status_type", String.class);
-        Object value = message.getData("value");
-        String reason = message.getData("reason", String.class);
+        StatusPayload.StatusUpdate update = message.getPayload(StatusPayload.StatusUpdate.class);
+        Object value = update != null ? update.value() : null;
 
-        if (statusTypeKey != null && value != null && reason != null) {
+        if (value != null) {
             try {
-                PlayerStatusChangeEvent.StatusType statusType = PlayerStatusChangeEvent.StatusType.fromKey(statusTypeKey);
+                PlayerStatusChangeEvent.StatusType statusType = update.statusType();
+                String reason = update.reason();
 
                 // 更新本地缓存
                 if (player instanceof BungeeUser bungeeUser) {
@@ -192,12 +227,13 @@ public class BungeeHuskChatExtendedAPI extends HuskChatExtendedAPI {
     }
 
     private void handleHealthChange(@NotNull OnlineUser player, @NotNull PlayerStatusMessage message) {
-        Double previousHealth = message.getData("previous_health", Double.class);
-        Double newHealth = message.getData("new_health", Double.class);
-        Double maxHealth = message.getData("max_health", Double.class);
-        String reason = message.getData("reason", String.class);
+        StatusPayload.HealthChange health = message.getPayload(StatusPayload.HealthChange.class);
+
+        if (health != null) {
+            double previousHealth = health.previousHealth();
+            double newHealth = health.newHealth();
+            double maxHealth = health.maxHealth();
 
-        if (previousHealth != null && newHealth != null && maxHealth != null && reason != null) {
             // 更新健康状态缓存
             if (player instanceof BungeeUser bungeeUser) {
                 bungeeUser.updateStatus(PlayerStatusChangeEvent.StatusType.HEALTH, newHealth);
@@ -212,23 +248,20 @@ public class BungeeHuskChatExtendedAPI extends HuskChatExtendedAPI {
 
     private void handleLocationChange(@NotNull OnlineUser player, @NotNull PlayerStatusMessage message) {
         // 处理位置变化
-        Map<String, Object> locationData = message.getData();
-
         // 触发位置变化事件
         plugin.log(java.util.logging.Level.INFO, "Player " + player.getName() + " location changed on server " + message.getServerName());
     }
 
     private void handlePlayerDeath(@NotNull OnlineUser player, @NotNull PlayerStatusMessage message) {
         // 处理玩家死亡
-        String deathMessage = message.getData("death_message", String.class);
-        String killerName = message.getData("killer", String.class);
+        StatusPayload.PlayerDeath death = message.getPayload(StatusPayload.PlayerDeath.class);
+        String deathMessage = death != null ? death.deathMessage() : null;
+        String killerName = death != null ? death.killer() : null;
 
         OnlineUser killer = null;
         if (killerName != null) {
-            killer = plugin.getOnlinePlayers().stream()
-                    .filter(user -> user.getName().equals(killerName))
-                    .findFirst()
-                    .orElse(null);
+            ProxiedPlayer killerPlayer = proxyServer.getPlayer(killerName);
+            killer = killerPlayer != null ? BungeeUser.adapt(killerPlayer, plugin) : null;
         }
 
         // 触发死亡事件 - 需要提供完整的参数
@@ -239,8 +272,6 @@ public class BungeeHuskChatExtendedAPI extends HuskChatExtendedAPI {
 
     private void handlePlayerRespawn(@NotNull OnlineUser player, @NotNull PlayerStatusMessage message) {
         // 处理玩家重生
-        String respawnReason = message.getData("reason", String.class);
-
         // 触发重生事件 - 需要提供完整的参数
         plugin.firePlayerRespawnEvent(player,
             net.william278.huskchat.user.BungeePlayerLocation.from("unknown", "unknown", 0.0, 0.0, 0.0, 0.0f, 0.0f),
@@ -250,7 +281,19 @@ public class BungeeHuskChatExtendedAPI extends HuskChatExtendedAPI {
     private void handleSyncResponse(@NotNull OnlineUser player, @NotNull PlayerStatusMessage message) {
         // 处理状态同步响应
         if (player instanceof BungeeUser bungeeUser) {
-            bungeeUser.syncFromBackend(message.getData());
+            StatusPayload.SyncResponse sync = message.getPayload(StatusPayload.SyncResponse.class);
+            if (sync == null) {
+                return;
+            }
+
+            // 响应只包含变化的状态，与之前从响应的服务器同步的状态合并
+            Map<PlayerStatusChangeEvent.StatusType, Object> statuses =
+                statusReplica.apply(player.getUuid(), message.getServerName(), sync);
+
+            // 玩家已切换服务器时，不应用旧服务器的状态
+            if (statuses != null && message.getServerName().equals(player.getServerName())) {
+                statuses.forEach(bungeeUser::updateStatus);
+            }
         }
     }
 
@@ -270,14 +313,29 @@ public class BungeeHuskChatExtendedAPI extends HuskChatExtendedAPI {
         ProxiedPlayer bungeePlayer = ((BungeeUser) player).getPlayer();
         ServerInfo currentServer = bungeePlayer.getServer().getInfo();
 
+        // 只请求上次同步以来变化的状态
         PlayerStatusMessage syncRequest = PlayerStatusMessage.createSyncRequest(
-            player.getUuid(), player.getName(), currentServer.getName());
+            player.getUuid(), player.getName(), currentServer.getName(),
+            statusReplica.request(player.getUuid(), currentServer.getName()));
 
+        // 先告知服务器需要哪些状态，再请求同步
+        sendPlayerStatusMessage(currentServer, PlayerStatusMessage.createSubscription(
+            player.getUuid(), player.getName(), currentServer.getName(), getStatusInterest()));
         sendPlayerStatusMessage(currentServer, syncRequest);
 
         return CompletableFuture.completedFuture(true);
     }
 
+    /**
+     * 清除玩家已同步的状态，在玩家离开代理服务器时调用
+     * Forget the statuses synced for a player, when they leave the proxy
+     *
+     * @param playerUuid 玩家UUID / player UUID
+     */
+    public void forgetPlayerStatusSync(@NotNull UUID playerUuid) {
+        statusReplica.forget(playerUuid);
+    }
+
     /**
      * 获取附近的玩家（代理服务器版本）
      * Get nearby players (proxy server version)
@@ -34,11 +34,15 @@ import net.william278.huskchat.user.BungeeUser;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 public class BungeeListener extends PlayerListener implements Listener {
 
-    public BungeeListener(@NotNull HuskChat plugin) {
+    private final ChatMailbox chatMailbox;
+
+    public BungeeListener(@NotNull HuskChat plugin, @NotNull ChatMailbox chatMailbox) {
         super(plugin);
+        this.chatMailbox = chatMailbox;
     }
 
     @EventHandler(priority = EventPriority.HIGH)
@@ -56,15 +60,27 @@ public class BungeeListener extends PlayerListener implements Listener {
             return;
         }
 
-        // Send the chat message, determine if the event should be canceled
-        if (new ChatMessage(channel.get(), player, e.getMessage(), plugin).dispatch()) {
-            e.setCancelled(true);
+        // Passthrough channels decide whether the message reaches the backend, so they must be handled inline
+        final ChatMessage message = new ChatMessage(channel.get(), player, e.getMessage(), plugin);
+        if (channel.get().getBroadcastScope().isPassThrough()) {
+            if (message.dispatch()) {
+                e.setCancelled(true);
+            }
+            return;
         }
+
+        // Other messages are always canceled, so dispatch them off the network thread
+        e.setCancelled(true);
+        chatMailbox.submit(player.getUuid(), () -> {
+            message.dispatch();
+            return CompletableFuture.completedFuture(null);
+        });
     }
 
     @EventHandler(priority = EventPriority.HIGH)
     public void onPlayerChangeServer(ServerSwitchEvent e) {
         final BungeeUser player = BungeeUser.adapt(e.getPlayer(), plugin);
+        plugin.getUserRegistry().setServer(player, player.getServerName());
         this.handlePlayerSwitchServer(player, player.getServerName());
     }
 
@@ -75,7 +91,9 @@ public class BungeeListener extends PlayerListener implements Listener {
 
     @EventHandler
     public void onPlayerQuitNetwork(PlayerDisconnectEvent e) {
-        super.handlePlayerQuit(BungeeUser.adapt(e.getPlayer(), plugin));
+        final BungeeUser player = BungeeUser.adapt(e.getPlayer(), plugin);
+        super.handlePlayerQuit(player);
+        plugin.getUserRegistry().unregister(player);
     }
 
 }
@@ -21,6 +21,7 @@ package net.william278.huskchat.listener;
 
 import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.connection.Server;
+import net.md_5.bungee.api.event.PlayerDisconnectEvent;
 import net.md_5.bungee.api.event.PluginMessageEvent;
 import net.md_5.bungee.api.event.ServerConnectedEvent;
 import net.md_5.bungee.api.plugin.Listener;
@@ -58,11 +59,10 @@ public class BungeePlayerStatusListener implements Listener {
         }
 
         try {
-            String json = new String(event.getData());
-            PlayerStatusMessage message = plugin.getGson().fromJson(json, PlayerStatusMessage.class);
-            
-            // 处理来自后端服务器的消息
-            extendedAPI.handlePlayerStatusMessage(server.getInfo().getName(), message);
+            // 后端服务器会将多条消息合并为一帧发送
+            for (PlayerStatusMessage message : extendedAPI.getStatusCodec().decodeAll(event.getData())) {
+                extendedAPI.handlePlayerStatusMessage(server.getInfo().getName(), message);
+            }
             
         } catch (Exception e) {
             plugin.log(java.util.logging.Level.WARNING, "Failed to handle plugin message from " + 
@@ -86,4 +86,10 @@ public class BungeePlayerStatusListener implements Listener {
             }
         }, 1, TimeUnit.SECONDS); // 延迟1秒确保连接稳定
     }
+
+    @EventHandler
+    public void onDisconnect(PlayerDisconnectEvent event) {
+        // 玩家离开代理服务器时，清除已同步的状态
+        extendedAPI.forgetPlayerStatusSync(event.getPlayer().getUniqueId());
+    }
 }
@@ -57,7 +57,7 @@ public class BungeeUser extends OnlineUser {
     }
 
     /**
-     * Adapts a bungee {@link ProxiedPlayer} to a cross-platform {@link OnlineUser} object
+     * Adapts a bungee {@link ProxiedPlayer} to its canonical cross-platform {@link OnlineUser} object
      *
      * @param player {@link ProxiedPlayer} to adapt
      * @param plugin the plugin instance
@@ -65,7 +65,12 @@ public class BungeeUser extends OnlineUser {
      */
     @NotNull
     public static BungeeUser adapt(@NotNull ProxiedPlayer player, @NotNull HuskChat plugin) {
-        return new BungeeUser(player, plugin);
+        if (!player.isConnected()) {
+            return plugin.getUserRegistry().find(player.getUniqueId(), BungeeUser.class, user -> user.player == player)
+                    .orElseGet(() -> new BungeeUser(player, plugin));
+        }
+        return plugin.getUserRegistry().adapt(player.getUniqueId(), BungeeUser.class,
+                user -> user.player == player, () -> new BungeeUser(player, plugin));
     }
 
     @Override
@@ -81,6 +86,10 @@ public class BungeeUser extends OnlineUser {
 
     @Override
     public int getPlayersOnServer() {
+        final Optional<String> server = plugin.getUserRegistry().getServer(getUuid());
+        if (server.isPresent()) {
+            return plugin.getUserRegistry().getServerMembers(server.get()).size();
+        }
         return getConnectedTo().map(s -> s.getInfo().getPlayers().size()).orElse(0);
     }
 
@@ -90,11 +99,13 @@ public class BungeeUser extends OnlineUser {
 
     @Override
     public boolean hasPermission(@Nullable String node, boolean allowByDefault) {
-        if (node != null && player.getPermissions().contains(node)) {
-            return player.hasPermission(node);
-        } else {
-            return allowByDefault;
-        }
+        return checkCachedPermission(node, allowByDefault, () -> {
+            if (node != null && player.getPermissions().contains(node)) {
+                return player.hasPermission(node);
+            } else {
+                return allowByDefault;
+            }
+        });
     }
 
     @NotNull
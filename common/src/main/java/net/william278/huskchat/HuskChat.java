@@ -28,8 +28,10 @@ import net.william278.huskchat.discord.WebHook;
 import net.william278.huskchat.event.EventProvider;
 import net.william278.huskchat.filter.FilterProvider;
 import net.william278.huskchat.getter.DataGetter;
+import net.william278.huskchat.placeholders.PlaceholderPipeline;
 import net.william278.huskchat.placeholders.PlaceholderReplacer;
 import net.william278.huskchat.user.OnlineUser;
+import net.william278.huskchat.user.OnlineUserRegistry;
 import net.william278.huskchat.util.AudiencesProvider;
 import org.jetbrains.annotations.NotNull;
 
@@ -55,12 +57,11 @@ public interface HuskChat extends AudiencesProvider, ConfigProvider, FilterProvi
     @NotNull
     List<PlaceholderReplacer> getPlaceholderReplacers();
 
+    @NotNull
+    PlaceholderPipeline getPlaceholderPipeline();
+
     default CompletableFuture<String> replacePlaceholders(@NotNull OnlineUser player, @NotNull String message) {
-        CompletableFuture<String> future = CompletableFuture.completedFuture(message);
-        for (PlaceholderReplacer replacer : getPlaceholderReplacers()) {
-            future = future.thenComposeAsync(toFormat -> replacer.formatPlaceholders(toFormat, player));
-        }
-        return future;
+        return getPlaceholderPipeline().replace(getPlaceholderReplacers(), player, message);
     }
 
     @NotNull
@@ -79,6 +80,14 @@ public interface HuskChat extends AudiencesProvider, ConfigProvider, FilterProvi
     @NotNull
     String getPlatform();
 
+    /**
+     * Get the registry of canonical {@link OnlineUser} instances for online players
+     *
+     * @return the online user registry
+     */
+    @NotNull
+    OnlineUserRegistry getUserRegistry();
+
     Optional<OnlineUser> getPlayer(@NotNull UUID uuid);
 
     Optional<OnlineUser> findPlayer(@NotNull String username);
@@ -21,14 +21,19 @@ package net.william278.huskchat.api;
 
 import net.william278.huskchat.HuskChat;
 import net.william278.huskchat.channel.Channel;
+import net.william278.huskchat.config.Settings;
 import net.william278.huskchat.event.*;
 import net.william278.huskchat.message.ChatMessage;
 import net.william278.huskchat.message.PrivateMessage;
+import net.william278.huskchat.network.PlayerStatusMessage;
+import net.william278.huskchat.network.StatusPayload;
 import net.william278.huskchat.user.OnlineUser;
 import net.william278.huskchat.user.PlayerInfo;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
@@ -40,8 +45,13 @@ import java.util.concurrent.CompletableFuture;
 @SuppressWarnings("unused")
 public class HuskChatExtendedAPI extends HuskChatAPI {
 
+    private StatusPayload.Subscription statusInterest;
+
     protected HuskChatExtendedAPI(@NotNull HuskChat plugin) {
         super(plugin);
+        final Settings.PlayerStatusSettings settings = plugin.getSettings().getPlayerStatus();
+        this.statusInterest = new StatusPayload.Subscription(
+                new HashSet<>(settings.getSubscribedMessages()), new HashSet<>(settings.getSubscribedStatuses()));
     }
 
     /**
@@ -428,6 +438,45 @@ public class HuskChatExtendedAPI extends HuskChatAPI {
         return new ChatConditionResult(true, null);
     }
 
+    /**
+     * 订阅来自后端服务器的玩家状态消息。后端服务器只发送代理服务器订阅的消息和状态，
+     * 因此在代理服务器上监听状态事件（如 {@link PlayerLocationChangeEvent}）的插件需要先订阅
+     * Subscribe to player status messages from backend servers. Backends only send the messages and statuses the
+     * proxy subscribes to, so plugins listening to status events on the proxy (such as
+     * {@link PlayerLocationChangeEvent}) need to subscribe to them first
+     *
+     * @param messageTypes 消息类型 / message types
+     * @param statusTypes 状态类型（用于状态更新和同步）/ status types, for status updates and syncs
+     */
+    public void subscribeToPlayerStatus(@NotNull Collection<PlayerStatusMessage.MessageType> messageTypes,
+                                        @NotNull Collection<PlayerStatusChangeEvent.StatusType> statusTypes) {
+        final StatusPayload.Subscription subscription;
+        synchronized (this) {
+            final StatusPayload.Subscription combined = statusInterest.with(
+                    new StatusPayload.Subscription(new HashSet<>(messageTypes), new HashSet<>(statusTypes)));
+            if (combined.equals(statusInterest)) {
+                return;
+            }
+            subscription = statusInterest = combined;
+        }
+        onStatusInterestChanged(subscription);
+    }
+
+    /**
+     * 获取代理服务器订阅的玩家状态
+     * Get the player statuses the proxy subscribes to
+     *
+     * @return 订阅 / subscription
+     */
+    @NotNull
+    public synchronized StatusPayload.Subscription getStatusInterest() {
+        return statusInterest;
+    }
+
+    protected void onStatusInterestChanged(@NotNull StatusPayload.Subscription subscription) {
+        // 默认无需处理，代理服务器会将新的订阅发送到后端服务器
+    }
+
     protected void updatePlayerStatusInternal(@NotNull OnlineUser player, @NotNull PlayerStatusChangeEvent.StatusType statusType, @NotNull Object newValue, long duration) {
         // 默认实现，子类可以重写
         throw new UnsupportedOperationException("Platform-specific implementation required");
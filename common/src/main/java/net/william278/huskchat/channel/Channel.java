@@ -29,7 +29,9 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Builder
 @Getter
@@ -39,6 +41,9 @@ import java.util.Optional;
 @AllArgsConstructor(access = AccessLevel.PRIVATE)
 public class Channel {
 
+    // Compiled restricted server patterns, shared between channels and kept across reloads
+    private static final Map<String, Pattern> SERVER_PATTERNS = new ConcurrentHashMap<>();
+
     private String id;
 
     @Builder.Default
@@ -137,9 +142,23 @@ public class Channel {
     }
 
     public boolean isServerRestricted(@NotNull String server) {
-        return restrictedServers.stream().anyMatch(
-            restrictedServer -> Pattern.compile(restrictedServer, Pattern.CASE_INSENSITIVE)
-                .matcher(server).matches());
+        for (String restrictedServer : restrictedServers) {
+            if (compileServerPattern(restrictedServer).matcher(server).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the compiled, case-insensitive pattern for a server name expression
+     *
+     * @param server the server name or regular expression
+     * @return the compiled pattern
+     */
+    @NotNull
+    public static Pattern compileServerPattern(@NotNull String server) {
+        return SERVER_PATTERNS.computeIfAbsent(server, key -> Pattern.compile(key, Pattern.CASE_INSENSITIVE));
     }
 
     public boolean canUserSend(@NotNull OnlineUser user) {
@@ -21,8 +21,6 @@ package net.william278.huskchat.config;
 
 import de.exlll.configlib.Comment;
 import de.exlll.configlib.Configuration;
-import java.util.Map.Entry;
-import java.util.regex.Pattern;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -30,9 +28,9 @@ import net.william278.huskchat.channel.Channel;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 /**
  * Class for loading and storing {@link Channel}s
@@ -108,11 +106,15 @@ public class Channels {
                     .build()
     );
 
+    // Lookup tables compiled from the channel definitions on first use
+    @Getter(AccessLevel.NONE)
+    private transient volatile Registry registry;
+
     public Optional<Channel> getChannel(@Nullable String channelId) {
         if (channelId == null) {
             return Optional.empty();
         }
-        return channels.stream().filter(channel -> channel.getId().equalsIgnoreCase(channelId)).findFirst();
+        return Optional.ofNullable(getRegistry().channels.get(Registry.fold(channelId)));
     }
 
     /**
@@ -121,10 +123,38 @@ public class Channels {
      * @return The default channel for the given server, if any
      */
     public Optional<String> getServerDefaultChannel(String server) {
-        return getServerDefaultChannels().entrySet().stream().filter(
-                defaultChannelEntry -> Pattern.compile(defaultChannelEntry.getKey(),
-                    Pattern.CASE_INSENSITIVE).matcher(server).matches()).map(Entry::getValue)
-            .findFirst();
+        return Optional.ofNullable(getRegistry().getRoute(server).defaultChannel);
+    }
+
+    /**
+     * Check whether a channel is restricted on the given server, using the memoized server routing table
+     *
+     * @param channel The channel
+     * @param server  The server name
+     * @return {@code true} if the channel may not be used on the server
+     */
+    public boolean isServerRestricted(@NotNull Channel channel, @NotNull String server) {
+        final Registry registry = getRegistry();
+        final String id = Registry.fold(channel.getId());
+        if (registry.channels.get(id) != channel) {
+            return channel.isServerRestricted(server);
+        }
+        return registry.getRoute(server).restrictedChannels.contains(id);
+    }
+
+    @NotNull
+    private Registry getRegistry() {
+        Registry registry = this.registry;
+        if (registry == null) {
+            synchronized (this) {
+                registry = this.registry;
+                if (registry == null) {
+                    registry = new Registry(channels, serverDefaultChannels);
+                    this.registry = registry;
+                }
+            }
+        }
+        return registry;
     }
 
     @NotNull
@@ -132,4 +162,56 @@ public class Channels {
         return Settings.formatCommands(channelCommandAliases);
     }
 
+    /**
+     * Immutable index of the channel definitions, with a memoized table of per-server routes
+     */
+    private static final class Registry {
+
+        private final Map<String, Channel> channels;
+        private final Map<Pattern, String> serverDefaults;
+        private final Map<String, Route> routes = new ConcurrentHashMap<>();
+
+        private Registry(@NotNull List<Channel> channels, @NotNull Map<String, String> serverDefaults) {
+            final Map<String, Channel> index = new HashMap<>();
+            channels.forEach(channel -> index.putIfAbsent(fold(channel.getId()), channel));
+            this.channels = Collections.unmodifiableMap(index);
+
+            final Map<Pattern, String> defaults = new LinkedHashMap<>();
+            serverDefaults.forEach((server, channel) -> defaults.put(Channel.compileServerPattern(server), channel));
+            this.serverDefaults = Collections.unmodifiableMap(defaults);
+        }
+
+        @NotNull
+        private Route getRoute(@NotNull String server) {
+            return routes.computeIfAbsent(server, this::route);
+        }
+
+        @NotNull
+        private Route route(@NotNull String server) {
+            final Set<String> restricted = new HashSet<>();
+            channels.forEach((id, channel) -> {
+                if (channel.isServerRestricted(server)) {
+                    restricted.add(id);
+                }
+            });
+            String defaultChannel = null;
+            for (Map.Entry<Pattern, String> entry : serverDefaults.entrySet()) {
+                if (entry.getKey().matcher(server).matches()) {
+                    defaultChannel = entry.getValue();
+                    break;
+                }
+            }
+            return new Route(Set.copyOf(restricted), defaultChannel);
+        }
+
+        @NotNull
+        private static String fold(@NotNull String channelId) {
+            return channelId.toLowerCase(Locale.ROOT);
+        }
+
+        private record Route(@NotNull Set<String> restrictedChannels, @Nullable String defaultChannel) {
+        }
+
+    }
+
 }
@@ -24,9 +24,15 @@ import de.exlll.configlib.YamlConfigurationProperties;
 import de.exlll.configlib.YamlConfigurationStore;
 import de.exlll.configlib.YamlConfigurations;
 import net.william278.huskchat.HuskChat;
+import net.william278.huskchat.user.JournalUserCacheStorage;
 import net.william278.huskchat.user.UserCache;
+import net.william278.huskchat.user.UserCacheStorage;
+import net.william278.huskchat.user.UserCacheWriter;
+import net.william278.huskchat.user.YamlUserCacheStorage;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
@@ -193,19 +199,68 @@ public interface ConfigProvider {
 
     void setUserCache(@NotNull UserCache.Editor userCache);
 
+    @Nullable
+    UserCacheWriter getUserCacheWriter();
+
+    void setUserCacheWriter(@Nullable UserCacheWriter userCacheWriter);
+
+    /**
+     * Load the user cache from the configured {@link UserCacheStorage}
+     */
     default void loadUserCache() {
-        final Path cacheFile = getConfigDirectory().resolve("user_cache.yml");
-        setUserCache(cacheFile.toFile().exists()
-                ? YamlConfigurations.load(cacheFile, UserCache.Editor.class)
-                : new UserCache.Editor());
+        closeUserCache();
+        final Settings.UserCacheSettings settings = getSettings().getUserCache();
+        UserCacheStorage storage = createUserCacheStorage(settings.getStorageType());
+        UserCache.Editor cache;
+        try {
+            cache = storage.load();
+        } catch (IOException | RuntimeException e) {
+            // Don't let a corrupt cache file stop chat; keep it aside for inspection and start over
+            getPlugin().log(Level.SEVERE, "Failed to load the user cache; moving the unreadable files aside "
+                                          + "and starting with an empty cache", e);
+            try {
+                storage.moveAside();
+                storage = createUserCacheStorage(settings.getStorageType());
+                cache = storage.load();
+            } catch (IOException ex) {
+                throw new IllegalStateException("Failed to reset the user cache", ex);
+            }
+        }
+        setUserCache(cache);
+        setUserCacheWriter(new UserCacheWriter(
+                getPlugin(), cache, storage, settings.getSaveInterval(), settings.getEvictionGracePeriod()
+        ));
     }
 
+    @NotNull
+    private UserCacheStorage createUserCacheStorage(@NotNull UserCacheStorage.Type type) {
+        return switch (type) {
+            case YAML -> new YamlUserCacheStorage(getPlugin(), getConfigDirectory());
+            case JOURNAL -> new JournalUserCacheStorage(getPlugin(), getConfigDirectory());
+        };
+    }
+
+    /**
+     * Edit the user cache. Changes are written to disk in the background
+     *
+     * @param userCache the edit to apply
+     */
     default void editUserCache(@NotNull Consumer<UserCache.Editor> userCache) {
-        userCache.accept((UserCache.Editor) getUserCache());
-        YamlConfigurations.save(
-                getConfigDirectory().resolve("user_cache.yml"),
-                UserCache.class, getUserCache()
-        );
+        final UserCache.Editor cache = (UserCache.Editor) getUserCache();
+        synchronized (cache) {
+            userCache.accept(cache);
+        }
+    }
+
+    /**
+     * Flush any pending user cache changes to disk and stop the background writer
+     */
+    default void closeUserCache() {
+        final UserCacheWriter writer = getUserCacheWriter();
+        if (writer != null) {
+            writer.close();
+            setUserCacheWriter(null);
+        }
     }
 
     /**
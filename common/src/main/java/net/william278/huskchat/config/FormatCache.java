@@ -0,0 +1,100 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.config;
+
+import de.themoep.minedown.adventure.MineDown;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.TextColor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of parsed MineDown formats, keyed by their markup once placeholders have been replaced.
+ * <p>
+ * Placeholder values such as prefixes may carry MineDown formatting of their own, so formats are parsed
+ * with their values in place; most messages repeat the same sender and format, so the parse is reused.
+ */
+final class FormatCache {
+
+    private final int maxSize;
+    private final Map<String, Parsed> parsed;
+
+    FormatCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.parsed = new LinkedHashMap<>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Parsed> eldest) {
+                return size() > FormatCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Get the parsed form of MineDown markup, parsing it if it is not cached
+     *
+     * @param markup the MineDown markup
+     * @return the parsed format
+     */
+    @NotNull
+    Parsed get(@NotNull String markup) {
+        synchronized (parsed) {
+            final Parsed cached = parsed.get(markup);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        final Component component = new MineDown(markup).toComponent();
+        final Parsed format = new Parsed(component, getFormatColor(component));
+        synchronized (parsed) {
+            parsed.put(markup, format);
+        }
+        return format;
+    }
+
+    // Gets the last TextColor from a component
+    @Nullable
+    private static TextColor getFormatColor(@NotNull Component component) {
+        // get the last color in the format
+        TextColor color = component.color();
+        if (component.children().isEmpty()) {
+            return color;
+        }
+        for (Component child : component.children()) {
+            TextColor childColor = getFormatColor(child);
+            if (childColor != null) {
+                color = childColor;
+            }
+        }
+        return color;
+    }
+
+    /**
+     * A parsed format
+     *
+     * @param component the parsed component, which is immutable and may be shared between messages
+     * @param color     the last color set in the format, applied to message text that follows it
+     */
+    record Parsed(@NotNull Component component, @Nullable TextColor color) {
+    }
+
+}
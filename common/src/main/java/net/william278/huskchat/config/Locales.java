@@ -27,7 +27,6 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextComponent;
-import net.kyori.adventure.text.format.TextColor;
 import net.william278.huskchat.HuskChat;
 import net.william278.huskchat.channel.Channel;
 import net.william278.huskchat.user.OnlineUser;
@@ -39,6 +38,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 
 @SuppressWarnings("FieldMayBeFinal")
 @Getter
@@ -63,6 +63,10 @@ public class Locales {
     // The raw set of locales loaded from yaml
     Map<String, String> locales = new TreeMap<>();
 
+    // Parsed formats and locale messages
+    @Getter(AccessLevel.NONE)
+    private transient final FormatCache formats = new FormatCache(512);
+
     @Nullable
     public String getRawLocale(@NotNull String id) {
         return locales.get(id);
@@ -84,22 +88,29 @@ public class Locales {
             replacementIndexer = replacementIndexer + 1;
         }
 
-        player.sendMessage(new MineDown(locale));
+        player.sendMessage(formats.get(locale).component());
     }
 
     public void sendChannelMessage(@NotNull OnlineUser target, @NotNull OnlineUser sender, @NotNull Channel channel,
                                    @NotNull String message, @NotNull HuskChat plugin) {
-        plugin.replacePlaceholders(sender, channel.getFormat()).thenAccept(replaced -> {
-            final Component format = new MineDown(replaced).toComponent();
-            final TextComponent.Builder builder = Component.text().append(format);
-            if (sender.hasPermission(FORMATTED_CHAT_PERMISSION, false)) {
-                builder.append(new MineDown(message)
-                        .disable(MineDownParser.Option.ADVANCED_FORMATTING)
-                        .toComponent().color(getFormatColor(format)));
-            } else {
-                builder.append(Component.text(message).color(getFormatColor(format)));
-            }
-            target.sendMessage(builder.build());
+        renderChannelMessage(sender, channel, message, plugin).thenAccept(target::sendMessage);
+    }
+
+    /**
+     * Render a channel message into its final component. The result only depends on the sender,
+     * so it can be built once and then sent to every recipient of the message.
+     *
+     * @param sender  the sender of the message
+     * @param channel the channel the message is being sent in
+     * @param message the message content
+     * @param plugin  the plugin instance
+     * @return a future completing with the rendered message
+     */
+    @NotNull
+    public CompletableFuture<Component> renderChannelMessage(@NotNull OnlineUser sender, @NotNull Channel channel,
+                                                             @NotNull String message, @NotNull HuskChat plugin) {
+        return plugin.replacePlaceholders(sender, channel.getFormat()).thenApply(replaced -> {
+            return appendMessage(formats.get(replaced), sender, message);
         });
     }
 
@@ -116,35 +127,22 @@ public class Locales {
                         .replace("%group_members%", MineDown.escape(getGroupMemberList(recipients, "\n")));
             }
 
-            final TextComponent.Builder builder = Component.text();
-            final Component format = new MineDown(replaced).toComponent();
-            builder.append(format);
-            if (sender.hasPermission(FORMATTED_CHAT_PERMISSION, false)) {
-                builder.append(new MineDown(message).disable(MineDownParser.Option.ADVANCED_FORMATTING)
-                        .toComponent().color(getFormatColor(format)));
-            } else {
-                builder.append(Component.text(message).color(getFormatColor(format)));
-            }
-
-            sender.sendMessage(builder.build());
+            sender.sendMessage(appendMessage(formats.get(replaced), sender, message));
         });
     }
 
-    // Gets the last TextColor from a component
-    @Nullable
-    private TextColor getFormatColor(@NotNull Component component) {
-        // get the last color in the format
-        TextColor color = component.color();
-        if (component.children().isEmpty()) {
-            return color;
-        }
-        for (Component child : component.children()) {
-            TextColor childColor = getFormatColor(child);
-            if (childColor != null) {
-                color = childColor;
-            }
+    // Append the message text to a parsed format, in the format's trailing color
+    @NotNull
+    private Component appendMessage(@NotNull FormatCache.Parsed format, @NotNull OnlineUser sender,
+                                    @NotNull String message) {
+        final TextComponent.Builder builder = Component.text().append(format.component());
+        if (sender.hasPermission(FORMATTED_CHAT_PERMISSION, false)) {
+            builder.append(new MineDown(message).disable(MineDownParser.Option.ADVANCED_FORMATTING)
+                    .toComponent().color(format.color()));
+        } else {
+            builder.append(Component.text(message).color(format.color()));
         }
-        return color;
+        return builder.build();
     }
 
     public void sendInboundPrivateMessage(@NotNull List<OnlineUser> recipients, @NotNull OnlineUser sender,
@@ -160,36 +158,62 @@ public class Locales {
                         .replace("%group_members%", MineDown.escape(getGroupMemberList(recipients, "\n")));
             }
 
-            final TextComponent.Builder builder = Component.text();
-            final Component format = new MineDown(replaced).toComponent();
-            builder.append(format);
-            if (sender.hasPermission(FORMATTED_CHAT_PERMISSION, false)) {
-                builder.append(new MineDown(message).disable(MineDownParser.Option.ADVANCED_FORMATTING)
-                        .toComponent().color(getFormatColor(format)));
-            } else {
-                builder.append(Component.text(message).color(getFormatColor(format)));
-            }
-
+            final Component rendered = appendMessage(formats.get(replaced), sender, message);
             for (final OnlineUser recipient : recipients) {
-                recipient.sendMessage(builder.build());
+                recipient.sendMessage(rendered);
             }
         });
     }
 
     public void sendLocalSpy(@NotNull OnlineUser spy, @NotNull UserCache.SpyColor spyColor, @NotNull OnlineUser sender,
                              @NotNull Channel channel, @NotNull String message, @NotNull HuskChat plugin) {
+        sendLocalSpy(Map.of(spyColor, List.of(spy)), sender, channel, message, plugin);
+    }
+
+    /**
+     * Send a local spy copy of a message, rendering it once per spy color
+     *
+     * @param spies   the spies to send the message to, grouped by color
+     * @param sender  the sender of the message
+     * @param channel the channel the message was sent in
+     * @param message the message
+     * @param plugin  the plugin instance
+     */
+    public void sendLocalSpy(@NotNull Map<UserCache.SpyColor, List<OnlineUser>> spies, @NotNull OnlineUser sender,
+                             @NotNull Channel channel, @NotNull String message, @NotNull HuskChat plugin) {
+        if (spies.isEmpty()) {
+            return;
+        }
         plugin.replacePlaceholders(sender, plugin.getSettings().getLocalSpy().getFormat())
-                .thenAccept(replaced -> {
-                    final TextComponent.Builder componentBuilder = Component.text()
-                            .append(new MineDown(replaced.replace("%spy_color%", spyColor.colorCode)
-                                    .replace("%channel%", channel.getId()) +
-                                    MineDown.escape(message)).toComponent());
-                    spy.sendMessage(componentBuilder.build());
-                });
+                .thenAccept(replaced -> spies.forEach((spyColor, colorSpies) -> {
+                    final FormatCache.Parsed format = formats.get(replaced
+                            .replace("%spy_color%", spyColor.colorCode)
+                            .replace("%channel%", channel.getId()));
+                    final Component component = Component.text().append(format.component())
+                            .append(Component.text(message).color(format.color())).build();
+                    colorSpies.forEach(spy -> spy.sendMessage(component));
+                }));
     }
 
     public void sendSocialSpy(@NotNull OnlineUser spy, @NotNull UserCache.SpyColor spyColor, @NotNull OnlineUser sender,
                               @NotNull List<OnlineUser> receivers, @NotNull String message, @NotNull HuskChat plugin) {
+        sendSocialSpy(Map.of(spyColor, List.of(spy)), sender, receivers, message, plugin);
+    }
+
+    /**
+     * Send a social spy copy of a private message, rendering it once per spy color
+     *
+     * @param spies     the spies to send the message to, grouped by color
+     * @param sender    the sender of the message
+     * @param receivers the recipients of the message
+     * @param message   the message
+     * @param plugin    the plugin instance
+     */
+    public void sendSocialSpy(@NotNull Map<UserCache.SpyColor, List<OnlineUser>> spies, @NotNull OnlineUser sender,
+                              @NotNull List<OnlineUser> receivers, @NotNull String message, @NotNull HuskChat plugin) {
+        if (spies.isEmpty()) {
+            return;
+        }
         plugin.replacePlaceholders(sender, receivers.size() == 1
                 ? plugin.getSettings().getSocialSpy().getFormat()
                 : plugin.getSettings().getSocialSpy().getGroupFormat()
@@ -203,9 +227,13 @@ public class Locales {
                         .replace("%group_members_comma_separated%", getGroupMemberList(receivers, ","))
                         .replace("%group_members%", MineDown.escape(getGroupMemberList(receivers, "\n")));
             }
-            spy.sendMessage(new MineDown(
-                    replaced.replace("%spy_color%", spyColor.colorCode) + MineDown.escape(message)
-            ));
+            final String format = replaced;
+            spies.forEach((spyColor, colorSpies) -> {
+                final FormatCache.Parsed parsed = formats.get(format.replace("%spy_color%", spyColor.colorCode));
+                final Component component = Component.text().append(parsed.component())
+                        .append(Component.text(message).color(parsed.color())).build();
+                colorSpies.forEach(spy -> spy.sendMessage(component));
+            });
         }));
     }
 
@@ -216,7 +244,7 @@ public class Locales {
         plugin.replacePlaceholders(player,
                         plugin.getDataGetter().getTextFromNode(player, "huskchat.join_message")
                                 .orElse(plugin.getSettings().getJoinAndQuitMessages().getJoin().getFormat()))
-                .thenAccept(replaced -> sendJoinQuitMessage(player, new MineDown(replaced).toComponent(), plugin));
+                .thenAccept(replaced -> sendJoinQuitMessage(player, formats.get(replaced).component(), plugin));
     }
 
     public void sendQuitMessage(@NotNull OnlineUser player, @NotNull HuskChat plugin) {
@@ -226,7 +254,7 @@ public class Locales {
         plugin.replacePlaceholders(player,
                         plugin.getDataGetter().getTextFromNode(player, "huskchat.quit_message")
                                 .orElse(plugin.getSettings().getJoinAndQuitMessages().getQuit().getFormat()))
-                .thenAccept(replaced -> sendJoinQuitMessage(player, new MineDown(replaced).toComponent(), plugin));
+                .thenAccept(replaced -> sendJoinQuitMessage(player, formats.get(replaced).component(), plugin));
     }
 
     // Dispatch a join/quit message to the correct server
@@ -234,10 +262,7 @@ public class Locales {
                                      @NotNull HuskChat plugin) {
         boolean local = List.of(Channel.BroadcastScope.LOCAL, Channel.BroadcastScope.LOCAL_PASSTHROUGH)
                 .contains(plugin.getSettings().getJoinAndQuitMessages().getBroadcastScope());
-        for (OnlineUser online : plugin.getOnlinePlayers()) {
-            if (local && !online.getServerName().equals(player.getServerName())) {
-                continue;
-            }
+        for (OnlineUser online : local ? plugin.getOnlinePlayersOnServer(player) : plugin.getOnlinePlayers()) {
             online.sendMessage(component);
         }
     }
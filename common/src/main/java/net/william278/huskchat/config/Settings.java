@@ -27,11 +27,16 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import net.william278.huskchat.channel.Channel;
 import net.william278.huskchat.discord.DiscordHook;
+import net.william278.huskchat.event.PlayerStatusChangeEvent;
+import net.william278.huskchat.network.PlayerStatusMessage;
+import net.william278.huskchat.network.StatusPayload;
+import net.william278.huskchat.user.UserCacheStorage;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Unmodifiable;
 
 import java.net.URI;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -63,6 +68,13 @@ public class Settings {
     @Comment("Whether to handle chat packets directly for better 1.19+ support (may cause rare compatibility issues)")
     private boolean usePacketListening = true;
 
+    @Comment("(Bungee/Velocity only) Threads used to process chat off the network threads. Each player's messages stay in order")
+    private int chatThreads = 2;
+
+    @Comment({"How long to cache the result of HuskChat permission checks for each player (in milliseconds, 0 to disable)",
+            "With LuckPerms installed, permission changes are picked up immediately"})
+    private long permissionCacheTime = 10000;
+
     @Comment("Placeholder settings")
     private PlaceholderSettings placeholder = new PlaceholderSettings();
 
@@ -75,6 +87,33 @@ public class Settings {
 
         @Comment("If using PAPIProxyBridge, how long to cache placeholders for (in milliseconds)")
         private long cacheTime = 3000;
+
+        @Comment("If using PAPIProxyBridge, how long to wait to send placeholder lookups for a player as one request (in milliseconds)")
+        private long batchWindow = 5;
+
+        @Comment("Threads used to finish formatting messages once asynchronous placeholders resolve (requires restart)")
+        private int threads = 2;
+
+        @Comment("Maximum formatting tasks waiting for a placeholder thread, after which they run on the resolving thread")
+        private int queueSize = 256;
+    }
+
+    @Comment("User cache (player channels & spy settings) storage settings")
+    private UserCacheSettings userCache = new UserCacheSettings();
+
+    @Getter
+    @Configuration
+    @NoArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class UserCacheSettings {
+        @Comment({"How to store the user cache (JOURNAL or YAML). JOURNAL is a compact binary journal; YAML is user_cache.yml",
+                "Switching type imports the existing data, so YAML can also be used to export the journal"})
+        private UserCacheStorage.Type storageType = UserCacheStorage.Type.JOURNAL;
+
+        @Comment("How often to write changes to the user cache to disk (in seconds). Changes are always saved on shutdown")
+        private long saveInterval = 15;
+
+        @Comment("(JOURNAL only) How long to keep the channel of a player who went offline in memory (in seconds)")
+        private long evictionGracePeriod = 300;
     }
 
     @Comment("Message comamnd settings")
@@ -294,6 +333,49 @@ public class Settings {
         }
     }
 
+    @Comment("Player status sharing between the proxy and backend servers")
+    private PlayerStatusSettings playerStatus = new PlayerStatusSettings();
+
+    @Getter
+    @Configuration
+    @NoArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class PlayerStatusSettings {
+        @Comment({"Send player status updates as JSON instead of the compact binary format, for debugging",
+                "Both formats are always accepted, so this can be changed on one server at a time"})
+        private boolean useJson = false;
+
+        @Comment("(Bukkit only) How often to send the batched player status changes to the proxy (in ticks)")
+        private long flushInterval = 1;
+
+        @Comment("(Bukkit only) Minimum time between location updates for each player (in milliseconds)")
+        private long locationInterval = 500;
+
+        @Comment("(Bukkit only) Minimum time between health updates for each player (in milliseconds)")
+        private long healthInterval = 0;
+
+        @Comment({"(Bukkit only) How long to remember the statuses last synced for players who left (in milliseconds)",
+                "Players coming back within this time only have their changed statuses synced to the proxy"})
+        private long syncRetention = 600000;
+
+        @Comment({"(Bungee/Velocity only) Status messages backend servers should send, in addition to those other plugins",
+                "subscribe to through the API. Others are not sent at all (STATUS_UPDATE, HEALTH_CHANGE, LOCATION_CHANGE,",
+                "PLAYER_DEATH, PLAYER_RESPAWN, SYNC_RESPONSE)"})
+        private List<PlayerStatusMessage.MessageType> subscribedMessages = new ArrayList<>(
+                StatusPayload.Subscription.DEFAULT.messageTypes());
+
+        @Comment({"(Bungee/Velocity only) Maximum location and health updates waiting to be handled",
+                "When full, the oldest updates are dropped so a flood of updates cannot hold up anything else"})
+        private int queueSize = 1024;
+
+        @Comment("(Bungee/Velocity only) Statuses backend servers should include in status updates and sync responses")
+        private List<PlayerStatusChangeEvent.StatusType> subscribedStatuses = new ArrayList<>(
+                StatusPayload.Subscription.DEFAULT.statusTypes());
+
+        @Comment({"(Bungee/Velocity only) Servers that are sent every player's status updates, such as those running plugins",
+                "that use them. Others are only sent the status updates of players on them"})
+        private List<String> updateServers = new ArrayList<>();
+    }
+
     @Comment("Custom names to display wherever you use the \"%server%\" placeholder instead of their default name")
     private Map<String, String> serverNameReplacement = new HashMap<>(
             Map.of("very-long-server-name", "VLSN")
@@ -23,11 +23,13 @@ import de.exlll.configlib.Configuration;
 import de.exlll.configlib.Polymorphic;
 import de.exlll.configlib.PolymorphicTypes;
 import lombok.*;
+import net.william278.huskchat.HuskChat;
 import net.william278.huskchat.user.OnlineUser;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.List;
 import java.util.Locale;
+import java.util.UUID;
 import java.util.function.Function;
 
 /**
@@ -65,6 +67,28 @@ public abstract class ChatFilter {
     @NotNull
     public abstract String getIgnorePermission();
 
+    /**
+     * Called once the filter has been loaded by the plugin, e.g. to report problems with its settings
+     *
+     * @param plugin the plugin that loaded the filter
+     */
+    public void onLoad(@NotNull HuskChat plugin) {
+    }
+
+    /**
+     * Discard any state the filter keeps for a user when they leave
+     *
+     * @param uuid the UUID of the user who left
+     */
+    public void onPlayerQuit(@NotNull UUID uuid) {
+    }
+
+    /**
+     * Release any resources held by the filter when the plugin shuts down
+     */
+    public void close() {
+    }
+
     @SuppressWarnings("FieldMayBeFinal")
     @Getter
     @Configuration
@@ -128,5 +152,15 @@ public abstract class ChatFilter {
         @NotNull
         public abstract String replace(@NotNull String message);
 
+        /**
+         * Replace the message from the user in place
+         *
+         * @param message The buffer holding the message, which is modified in place
+         */
+        public void replace(@NotNull StringBuilder message) {
+            final String replaced = replace(message.toString());
+            message.replace(0, message.length(), replaced);
+        }
+
     }
 }
@@ -21,48 +21,66 @@ package net.william278.huskchat.filter;
 
 import de.exlll.configlib.Configuration;
 import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import net.william278.huskchat.user.OnlineUser;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.HashMap;
-import java.util.Locale;
-import java.util.Map;
-import java.util.StringJoiner;
+import java.util.*;
 
 /**
  * A {@link ReplacerFilter} that replaces chat emoji with the character emote
+ * <p>
+ * Emoji formats are compiled into a trie when the replacer is created, so each message is replaced in a single
+ * pass: every space-separated word is walked down the trie once, and only whole-word matches are replaced.
  */
 public class EmojiReplacer extends ChatFilter.ReplacerFilter {
 
+    private final EmojiTrie trie;
+
     public EmojiReplacer(@NotNull FilterSettings settings) {
         super(settings);
+        final EmojiReplacerSettings emojiSettings = (EmojiReplacerSettings) settings;
+        this.trie = new EmojiTrie(emojiSettings.getEmoji(), emojiSettings.isCaseInsensitive());
     }
 
     @Override
     @NotNull
     public String replace(@NotNull String message) {
-        String[] words = message.split(" ");
-        StringJoiner replacedMessage = new StringJoiner(" ");
-        final EmojiReplacerSettings settings = (EmojiReplacerSettings) this.settings;
-        for (String word : words) {
-            for (String emoteFormat : settings.getEmoji().keySet()) {
-                if (!settings.isCaseInsensitive()) {
-                    if (word.equals(emoteFormat)) {
-                        word = settings.getEmoji().get(emoteFormat);
-                        break;
-                    }
-                } else {
-                    if (word.toLowerCase(Locale.ROOT).equals(emoteFormat)) {
-                        word = settings.getEmoji().get(emoteFormat);
-                        break;
-                    }
+        final StringBuilder replaced = new StringBuilder(message);
+        replace(replaced);
+        return replaced.toString();
+    }
+
+    @Override
+    public void replace(@NotNull StringBuilder message) {
+        StringBuilder replaced = null;
+        int copied = 0;
+        int start = 0;
+        final int length = message.length();
+        while (start <= length) {
+            int end = start;
+            while (end < length && message.charAt(end) != ' ') {
+                end++;
+            }
+            final String emoji = trie.match(message, start, end);
+            if (emoji != null) {
+                // Only start building a new message once the first emoji is found
+                if (replaced == null) {
+                    replaced = new StringBuilder(length);
                 }
+                replaced.append(message, copied, start).append(emoji);
+                copied = end;
             }
-            replacedMessage.add(word);
+            start = end + 1;
+        }
+        if (replaced != null) {
+            replaced.append(message, copied, length);
+            message.setLength(0);
+            message.append(replaced);
         }
-        return replacedMessage.toString();
     }
 
     @NotNull
@@ -90,6 +108,7 @@ public class EmojiReplacer extends ChatFilter.ReplacerFilter {
     @Getter
     @Configuration
     @NoArgsConstructor(access = AccessLevel.PRIVATE)
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
     public static class EmojiReplacerSettings extends FilterSettings {
         private boolean caseInsensitive = false;
         private Map<String, String> emoji = new HashMap<>(Map.of(
@@ -106,4 +125,77 @@ public class EmojiReplacer extends ChatFilter.ReplacerFilter {
         ));
     }
 
+    /**
+     * A trie of emoji formats. Children are kept in sorted arrays, so matching allocates nothing
+     */
+    private static final class EmojiTrie {
+
+        private final Node root;
+        private final boolean caseInsensitive;
+
+        private EmojiTrie(@NotNull Map<String, String> emoji, boolean caseInsensitive) {
+            this.caseInsensitive = caseInsensitive;
+            final Builder builder = new Builder();
+            emoji.forEach((format, replacement) -> {
+                if (format.isEmpty()) {
+                    return;
+                }
+                Builder node = builder;
+                final String key = caseInsensitive ? format.toLowerCase(Locale.ROOT) : format;
+                for (int i = 0; i < key.length(); i++) {
+                    node = node.children.computeIfAbsent(key.charAt(i), c -> new Builder());
+                }
+                node.replacement = replacement;
+            });
+            this.root = builder.build();
+        }
+
+        // Returns the replacement for the word between start and end, if it is an emoji format
+        @Nullable
+        private String match(@NotNull CharSequence message, int start, int end) {
+            Node node = root;
+            for (int i = start; i < end && node != null; i++) {
+                final char c = message.charAt(i);
+                node = node.child(caseInsensitive ? Character.toLowerCase(c) : c);
+            }
+            return node != null ? node.replacement : null;
+        }
+
+        private static final class Node {
+            private final char[] keys;
+            private final Node[] children;
+            private final String replacement;
+
+            private Node(char[] keys, Node[] children, @Nullable String replacement) {
+                this.keys = keys;
+                this.children = children;
+                this.replacement = replacement;
+            }
+
+            @Nullable
+            private Node child(char c) {
+                final int index = Arrays.binarySearch(keys, c);
+                return index >= 0 ? children[index] : null;
+            }
+        }
+
+        private static final class Builder {
+            private final TreeMap<Character, Builder> children = new TreeMap<>();
+            private String replacement;
+
+            @NotNull
+            private Node build() {
+                final char[] keys = new char[children.size()];
+                final Node[] nodes = new Node[children.size()];
+                int i = 0;
+                for (Map.Entry<Character, Builder> child : children.entrySet()) {
+                    keys[i] = child.getKey();
+                    nodes[i++] = child.getValue().build();
+                }
+                return new Node(keys, nodes, replacement);
+            }
+        }
+
+    }
+
 }
@@ -0,0 +1,157 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.filter;
+
+import net.william278.huskchat.user.OnlineUser;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Unmodifiable;
+
+import java.util.*;
+
+/**
+ * An immutable, ordered chain of {@link ChatFilter}s applied to a kind of message.
+ * <p>
+ * The distinct ignore permissions of the chain are computed when it is built, so that each one is only
+ * checked once per message, however many filters share it.
+ */
+public final class FilterChain {
+
+    public static final FilterChain EMPTY = new FilterChain(List.of());
+
+    private final List<ChatFilter> filters;
+    private final String[] permissions;
+    private final int[] permissionIndexes;
+
+    private FilterChain(@NotNull List<ChatFilter> filters) {
+        this.filters = List.copyOf(filters);
+        final Map<String, Integer> indexes = new LinkedHashMap<>();
+        this.permissionIndexes = new int[this.filters.size()];
+        for (int i = 0; i < this.filters.size(); i++) {
+            final String permission = this.filters.get(i).getIgnorePermission();
+            permissionIndexes[i] = indexes.computeIfAbsent(permission, key -> indexes.size());
+        }
+        this.permissions = indexes.keySet().toArray(String[]::new);
+    }
+
+    /**
+     * Create a chain applying filters in the given order
+     *
+     * @param filters the filters to apply
+     * @return the filter chain
+     */
+    @NotNull
+    public static FilterChain of(@NotNull List<ChatFilter> filters) {
+        return filters.isEmpty() ? EMPTY : new FilterChain(filters);
+    }
+
+    @NotNull
+    @Unmodifiable
+    public List<ChatFilter> getFilters() {
+        return filters;
+    }
+
+    public boolean isEmpty() {
+        return filters.isEmpty();
+    }
+
+    /**
+     * Resolve which filters in the chain a sender ignores, checking each distinct ignore permission once
+     *
+     * @param sender the sender of the message
+     * @return for each filter in the chain, whether the sender ignores it
+     */
+    @NotNull
+    boolean[] resolveIgnored(@NotNull OnlineUser sender) {
+        final boolean[] hasPermission = new boolean[permissions.length];
+        for (int i = 0; i < permissions.length; i++) {
+            hasPermission[i] = sender.hasPermission(permissions[i], false);
+        }
+        final boolean[] ignored = new boolean[filters.size()];
+        for (int i = 0; i < ignored.length; i++) {
+            ignored[i] = hasPermission[permissionIndexes[i]];
+        }
+        return ignored;
+    }
+
+    /**
+     * The filter chains for each kind of message, compiled once when filters are loaded
+     */
+    public static final class Compiled {
+
+        public static final Compiled EMPTY = new Compiled(Map.of(), FilterChain.EMPTY, FilterChain.EMPTY);
+
+        private final Map<String, FilterChain> channelChains;
+        private final FilterChain messageChain;
+        private final FilterChain broadcastChain;
+
+        private Compiled(@NotNull Map<String, FilterChain> channelChains, @NotNull FilterChain messageChain,
+                         @NotNull FilterChain broadcastChain) {
+            this.channelChains = channelChains;
+            this.messageChain = messageChain;
+            this.broadcastChain = broadcastChain;
+        }
+
+        /**
+         * Compile the chains for each channel and message type from the loaded filters
+         *
+         * @param filters the loaded filters and replacers, in order
+         * @return the compiled chains
+         */
+        @NotNull
+        public static Compiled compile(@NotNull List<ChatFilter> filters) {
+            final Map<String, List<ChatFilter>> channels = new HashMap<>();
+            final List<ChatFilter> messages = new ArrayList<>();
+            final List<ChatFilter> broadcasts = new ArrayList<>();
+            for (ChatFilter filter : filters) {
+                final ChatFilter.FilterSettings settings = filter.getSettings();
+                for (String channel : new LinkedHashSet<>(settings.getChannels())) {
+                    channels.computeIfAbsent(channel, id -> new ArrayList<>()).add(filter);
+                }
+                if (settings.isPrivateMessages()) {
+                    messages.add(filter);
+                }
+                if (settings.isBroadcastMessages()) {
+                    broadcasts.add(filter);
+                }
+            }
+
+            final Map<String, FilterChain> channelChains = new HashMap<>();
+            channels.forEach((channel, chain) -> channelChains.put(channel, FilterChain.of(chain)));
+            return new Compiled(Map.copyOf(channelChains), FilterChain.of(messages), FilterChain.of(broadcasts));
+        }
+
+        @NotNull
+        public FilterChain getChannelChain(@NotNull String channelId) {
+            return channelChains.getOrDefault(channelId, FilterChain.EMPTY);
+        }
+
+        @NotNull
+        public FilterChain getMessageChain() {
+            return messageChain;
+        }
+
+        @NotNull
+        public FilterChain getBroadcastChain() {
+            return broadcastChain;
+        }
+
+    }
+
+}
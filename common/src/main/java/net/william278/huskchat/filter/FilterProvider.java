@@ -31,8 +31,20 @@ import java.util.logging.Level;
 
 public interface FilterProvider {
 
+    String BYPASS_FILTERS_PERMISSION = "huskchat.bypass_filters";
+
     List<ChatFilter> getFiltersAndReplacers();
 
+    /**
+     * Get the filter chains compiled from the loaded filters
+     *
+     * @return the compiled filter chains
+     */
+    @NotNull
+    FilterChain.Compiled getFilterChains();
+
+    void setFilterChains(@NotNull FilterChain.Compiled filterChains);
+
     default void loadFilters() {
         final Filters settings = getPlugin().getFilterSettings();
         settings.getFilters().entrySet().stream()
@@ -40,46 +52,97 @@ public interface FilterProvider {
                 .forEach(entry -> {
                     final ChatFilter.Type type = entry.getKey();
                     final ChatFilter.FilterSettings filterSettings = entry.getValue();
-                    getFiltersAndReplacers().add(type.getCreator().apply(filterSettings));
+                    final ChatFilter filter = type.getCreator().apply(filterSettings);
+                    filter.onLoad(getPlugin());
+                    getFiltersAndReplacers().add(filter);
                     getPlugin().log(Level.INFO, "Loaded %s filter".formatted(type.name()));
                 });
+        setFilterChains(FilterChain.Compiled.compile(getFiltersAndReplacers()));
+    }
+
+    /**
+     * Release the resources held by the loaded filters
+     */
+    default void closeFilters() {
+        getFiltersAndReplacers().forEach(ChatFilter::close);
     }
 
     default Optional<String> filter(@NotNull OnlineUser sender, @NotNull String message,
                                     @NotNull List<ChatFilter> filters) {
-        boolean bypass = sender.hasPermission("huskchat.bypass_filters", false);
-        final StringBuilder filtered = new StringBuilder(message);
-        for (ChatFilter filter : filters) {
-            if (sender.hasPermission(filter.getIgnorePermission(), false)) {
+        return filter(sender, message, FilterChain.of(filters));
+    }
+
+    default Optional<String> filter(@NotNull OnlineUser sender, @NotNull String message,
+                                    @NotNull FilterChain chain) {
+        if (chain.isEmpty()) {
+            return Optional.of(message);
+        }
+
+        // Resolve permissions once for the whole chain
+        final boolean bypass = sender.hasPermission(BYPASS_FILTERS_PERMISSION, false);
+        final boolean[] ignored = chain.resolveIgnored(sender);
+        final List<ChatFilter> filters = chain.getFilters();
+        StringBuilder filtered = null;
+        for (int i = 0; i < ignored.length; i++) {
+            if (ignored[i]) {
                 continue;
             }
+            final ChatFilter filter = filters.get(i);
             if (filter instanceof ChatFilter.ReplacerFilter replacer) {
-                filtered.replace(0, filtered.length(), replacer.replace(filtered.toString()));
+                if (filtered == null) {
+                    filtered = new StringBuilder(message);
+                }
+                replacer.replace(filtered);
             }
             if (!bypass && !filter.isAllowed(sender, message)) {
                 getPlugin().getLocales().sendMessage(sender, filter.getDisallowedLocale());
                 return Optional.empty();
             }
         }
-        return Optional.of(filtered.toString());
+        return Optional.of(filtered != null ? filtered.toString() : message);
     }
 
     default List<ChatFilter> getChannelFilters(@NotNull Channel channel) {
-        return getFiltersAndReplacers().stream()
-                .filter(filter -> filter.getSettings().getChannels().contains(channel.getId()))
-                .toList();
+        return getChannelFilterChain(channel).getFilters();
     }
 
     default List<ChatFilter> getMessageFilters() {
-        return getFiltersAndReplacers().stream()
-                .filter(filter -> filter.getSettings().isPrivateMessages())
-                .toList();
+        return getMessageFilterChain().getFilters();
     }
 
     default List<ChatFilter> getBroadcastFilters() {
-        return getFiltersAndReplacers().stream()
-                .filter(filter -> filter.getSettings().isBroadcastMessages())
-                .toList();
+        return getBroadcastFilterChain().getFilters();
+    }
+
+    /**
+     * Get the compiled chain of filters applying to a channel
+     *
+     * @param channel the channel
+     * @return the filter chain
+     */
+    @NotNull
+    default FilterChain getChannelFilterChain(@NotNull Channel channel) {
+        return getFilterChains().getChannelChain(channel.getId());
+    }
+
+    /**
+     * Get the compiled chain of filters applying to private messages
+     *
+     * @return the filter chain
+     */
+    @NotNull
+    default FilterChain getMessageFilterChain() {
+        return getFilterChains().getMessageChain();
+    }
+
+    /**
+     * Get the compiled chain of filters applying to broadcasts
+     *
+     * @return the filter chain
+     */
+    @NotNull
+    default FilterChain getBroadcastFilterChain() {
+        return getFilterChains().getBroadcastChain();
     }
 
 
@@ -21,19 +21,39 @@ package net.william278.huskchat.filter;
 
 import de.exlll.configlib.Configuration;
 import lombok.Getter;
+import net.william278.huskchat.HuskChat;
 import net.william278.huskchat.user.OnlineUser;
 import net.william278.profanitycheckerapi.ProfanityChecker;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
 
 /**
  * A {@link ChatFilter} that filters against profanity using machine learning
  * Uses <a href="https://github.com/WiIIiam278/ProfanityCheckerAPI/">ProfanityCheckerAPI</a>, which uses jep to run a python
  * machine learning algorithm to determine the probability that a string contains profanity
+ * <p>
+ * A jep interpreter is bound to the thread that created it, so checks run on a small pool of dedicated threads,
+ * each keeping its own {@link ProfanityChecker} warm for the lifetime of the filter. Checks wait for a verdict up
+ * to a timeout, after which the configured failure policy applies, and recent verdicts are cached.
  */
 public class ProfanityFilterer extends ChatFilter {
 
     @NotNull
     private final ProfanityChecker.ProfanityCheckerBuilder builder;
+    private final ThreadLocal<ProfanityChecker> checker = new ThreadLocal<>();
+    private final ThreadPoolExecutor executor;
+    private final Map<String, Boolean> verdicts;
+    // Whether a failed check has been logged since the last successful one
+    private final AtomicBoolean failureLogged = new AtomicBoolean();
+    @Nullable
+    private volatile HuskChat plugin;
 
     public ProfanityFilterer(@NotNull FilterSettings settings) {
         super(settings);
@@ -47,19 +67,83 @@ public class ProfanityFilterer extends ChatFilter {
             builder.useThreshold(true);
             builder.threshold(profanitySettings.getTolerance());
         }
-        initialize();
+
+        final int poolSize = Math.max(1, profanitySettings.getPoolSize());
+        final AtomicInteger threads = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, profanitySettings.getQueueSize())),
+                runnable -> {
+                    final Thread thread = new Thread(() -> {
+                        try {
+                            runnable.run();
+                        } finally {
+                            closeChecker();
+                        }
+                    }, "HuskChat-ProfanityChecker-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+        );
+
+        final int cacheSize = Math.max(0, profanitySettings.getCacheSize());
+        this.verdicts = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > cacheSize;
+            }
+        };
+        initialize(poolSize);
     }
 
     /**
-     * Pre-initializes the {@link ProfanityChecker}, by generating an instance of the class
+     * Pre-initializes a {@link ProfanityChecker} on each of the checker threads
      */
-    private void initialize() {
-        try (final ProfanityChecker ignored = builder.build()) {
-            System.out.println("Initialized the profanity checker and hooked into the jep interpreter");
-        } catch (UnsatisfiedLinkError | IllegalStateException e) {
-            throw new RuntimeException("Failed to initialize ProfanityChecker (" + e.getMessage() + ")" +
+    private void initialize(int poolSize) {
+        final CountDownLatch started = new CountDownLatch(poolSize);
+        final CompletableFuture<?>[] warmups = new CompletableFuture[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            warmups[i] = CompletableFuture.runAsync(() -> {
+                try {
+                    getChecker();
+                } finally {
+                    started.countDown();
+                }
+                try {
+                    // Hold this thread until the others have started, so each thread warms its own checker
+                    started.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, executor);
+        }
+        try {
+            CompletableFuture.allOf(warmups).join();
+        } catch (CompletionException e) {
+            executor.shutdownNow();
+            final Throwable cause = e.getCause() != null ? e.getCause() : e;
+            throw new RuntimeException("Failed to initialize ProfanityChecker (" + cause.getMessage() + ")" +
                     "Please ensure that the jep library is installed and the library path is correct. " +
-                    "Consult the HuskChat docs for more information on this error.", e);
+                    "Consult the HuskChat docs for more information on this error.", cause);
+        }
+    }
+
+    // Get the checker of the current checker thread, building it on first use
+    @NotNull
+    private ProfanityChecker getChecker() {
+        ProfanityChecker current = checker.get();
+        if (current == null) {
+            current = builder.build();
+            checker.set(current);
+        }
+        return current;
+    }
+
+    private void closeChecker() {
+        final ProfanityChecker current = checker.get();
+        if (current != null) {
+            checker.remove();
+            current.close();
         }
     }
 
@@ -70,12 +154,54 @@ public class ProfanityFilterer extends ChatFilter {
 
     @Override
     public boolean isAllowed(@NotNull OnlineUser player, @NotNull String message) {
-        try (final ProfanityChecker checker = builder.build()) {
-            return !checker.isProfane(message);
-        } catch (UnsatisfiedLinkError e) {
-            e.printStackTrace();
-            return false;
+        final Boolean cached;
+        synchronized (verdicts) {
+            cached = verdicts.get(message);
+        }
+        if (cached != null) {
+            return cached;
         }
+
+        final ProfanityFilterSettings settings = (ProfanityFilterSettings) this.settings;
+        Future<Boolean> check = null;
+        try {
+            check = executor.submit(() -> !getChecker().isProfane(message));
+            final boolean allowed = check.get(settings.getTimeout(), TimeUnit.MILLISECONDS);
+            synchronized (verdicts) {
+                verdicts.put(message, allowed);
+            }
+            failureLogged.set(false);
+            return allowed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return settings.isFailOpen();
+        } catch (TimeoutException e) {
+            check.cancel(false);
+            return settings.isFailOpen();
+        } catch (RejectedExecutionException e) {
+            // Too many messages are waiting, or the filter is closing; the checker itself hasn't failed
+            return settings.isFailOpen();
+        } catch (ExecutionException e) {
+            // Log the first failure only, as every message until the checker recovers will fail the same way
+            final HuskChat plugin = this.plugin;
+            if (plugin != null && failureLogged.compareAndSet(false, true)) {
+                plugin.log(Level.WARNING, "Failed to check a message for profanity; messages will be "
+                        + (settings.isFailOpen() ? "allowed" : "blocked") + " until checks succeed again",
+                        e.getCause() != null ? e.getCause() : e);
+            }
+            return settings.isFailOpen();
+        }
+    }
+
+    @Override
+    public void onLoad(@NotNull HuskChat plugin) {
+        this.plugin = plugin;
+        plugin.log(Level.INFO, "Initialized the profanity checker and hooked into the jep interpreter");
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
     }
 
     @Override
@@ -111,6 +237,16 @@ public class ProfanityFilterer extends ChatFilter {
         public String libraryPath = "";
         public ProfanityFilterMode mode = ProfanityFilterMode.AUTOMATIC;
         public double tolerance = 0.78d;
+        // Number of threads keeping a profanity checker (jep interpreter) warm
+        public int poolSize = 1;
+        // Maximum number of messages waiting to be checked
+        public int queueSize = 64;
+        // How long to wait for a verdict, in milliseconds
+        public long timeout = 1000;
+        // Whether to allow messages that couldn't be checked in time (or at all)
+        public boolean failOpen = true;
+        // Number of recent verdicts to remember
+        public int cacheSize = 256;
 
         private ProfanityFilterSettings() {
             this.enabled = false;
@@ -21,16 +21,81 @@ package net.william278.huskchat.filter;
 
 import de.exlll.configlib.Configuration;
 import lombok.Getter;
+import net.william278.huskchat.HuskChat;
 import net.william278.huskchat.user.OnlineUser;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiPredicate;
+import java.util.logging.Level;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
+/**
+ * A {@link ChatFilter} that disallows messages matching regular expressions
+ * <p>
+ * Patterns are compiled once when the filter is created, skipping invalid ones. Patterns of each mode are combined
+ * into a single alternation where possible (patterns with back-references, named groups or comments are kept
+ * separate). Matching each compiled pattern is abandoned once it exceeds the time budget. If a combined alternation
+ * runs out of time, each of its patterns is matched again with a budget of its own, so one slow pattern can't use up
+ * the time of the others; a message is disallowed if any single pattern runs out of time.
+ */
 public class RegexFilter extends ChatFilter {
 
+    // Patterns that can't safely be wrapped in an alternation with other patterns
+    private static final Pattern UNCOMBINABLE = Pattern.compile("\\\\[1-9]|\\\\k<|\\(\\?<[a-zA-Z]|\\(\\?[a-zA-Z-]*x");
+
+    private final List<PatternGroup> matchPatterns;
+    private final List<PatternGroup> findPatterns;
+    private final long timeBudget;
+    private final List<PatternSyntaxException> invalidPatterns = new ArrayList<>();
+
     public RegexFilter(@NotNull FilterSettings settings) {
         super(settings);
+        final RegexFilterSettings regexSettings = (RegexFilterSettings) settings;
+        this.matchPatterns = compile(regexSettings.getPatterns());
+        this.findPatterns = compile(regexSettings.getFindPatterns());
+        this.timeBudget = TimeUnit.MILLISECONDS.toNanos(regexSettings.getTimeBudget());
+    }
+
+    @Override
+    public void onLoad(@NotNull HuskChat plugin) {
+        invalidPatterns.forEach(e -> plugin.log(Level.WARNING, "Skipping invalid regex filter pattern "
+                + e.getPattern() + ": " + e.getDescription()));
+    }
+
+    @NotNull
+    private List<PatternGroup> compile(@NotNull List<String> patterns) {
+        final List<PatternGroup> compiled = new ArrayList<>();
+        final StringJoiner combined = new StringJoiner("|");
+        final List<Pattern> combinable = new ArrayList<>();
+        for (String pattern : patterns) {
+            final Pattern regex;
+            try {
+                regex = Pattern.compile(pattern);
+            } catch (PatternSyntaxException e) {
+                invalidPatterns.add(e);
+                continue;
+            }
+            if (UNCOMBINABLE.matcher(pattern).find()) {
+                compiled.add(new PatternGroup(regex, List.of()));
+                continue;
+            }
+            combinable.add(regex);
+            combined.add("(?:" + pattern + ")");
+        }
+        if (combinable.size() > 1) {
+            try {
+                compiled.add(0, new PatternGroup(Pattern.compile(combined.toString()), List.copyOf(combinable)));
+                return List.copyOf(compiled);
+            } catch (PatternSyntaxException ignored) {
+            }
+        }
+        compiled.addAll(0, combinable.stream().map(regex -> new PatternGroup(regex, List.of())).toList());
+        return List.copyOf(compiled);
     }
 
     @Override
@@ -38,14 +103,37 @@ public class RegexFilter extends ChatFilter {
         if (!settings.isEnabled()) {
             return true;
         }
-        for (String pattern : ((RegexFilterSettings) settings).getPatterns()) {
-            if (message.matches(pattern)) {
-                return false;
+        try {
+            for (PatternGroup group : matchPatterns) {
+                if (group.test(message, this::matches)) {
+                    return false;
+                }
             }
+            for (PatternGroup group : findPatterns) {
+                if (group.test(message, this::find)) {
+                    return false;
+                }
+            }
+        } catch (TimeBudgetExceededException e) {
+            return false;
         }
         return true;
     }
 
+    private boolean matches(@NotNull Pattern pattern, @NotNull String message) {
+        return pattern.matcher(timed(message)).matches();
+    }
+
+    private boolean find(@NotNull Pattern pattern, @NotNull String message) {
+        return pattern.matcher(timed(message)).find();
+    }
+
+    // Each match gets a budget of its own, starting when it does
+    @NotNull
+    private CharSequence timed(@NotNull String message) {
+        return timeBudget > 0 ? new TimedCharSequence(message, System.nanoTime() + timeBudget) : message;
+    }
+
     @Override
     @NotNull
     public String getDisallowedLocale() {
@@ -66,11 +154,108 @@ public class RegexFilter extends ChatFilter {
     @Getter
     @Configuration
     public static class RegexFilterSettings extends FilterSettings {
+        // Patterns that must match the whole message
         private List<String> patterns = new ArrayList<>();
+        // Patterns that may match anywhere in the message
+        private List<String> findPatterns = new ArrayList<>();
+        // Maximum time to spend matching a message, in milliseconds (0 to disable)
+        private long timeBudget = 50;
 
         private RegexFilterSettings() {
             this.enabled = false;
         }
+
+        RegexFilterSettings(@NotNull List<String> patterns, @NotNull List<String> findPatterns, long timeBudget) {
+            this.patterns = patterns;
+            this.findPatterns = findPatterns;
+            this.timeBudget = timeBudget;
+        }
+    }
+
+    /**
+     * A compiled pattern, and the patterns it combines if it is an alternation of several
+     */
+    private record PatternGroup(@NotNull Pattern pattern, @NotNull List<Pattern> members) {
+
+        private boolean test(@NotNull String message, @NotNull BiPredicate<Pattern, String> matcher) {
+            try {
+                return matcher.test(pattern, message);
+            } catch (TimeBudgetExceededException e) {
+                if (members.isEmpty()) {
+                    throw e;
+                }
+            }
+
+            // Find the pattern that ran out of time, without letting it hold up the others
+            boolean exceeded = false;
+            for (Pattern member : members) {
+                try {
+                    if (matcher.test(member, message)) {
+                        return true;
+                    }
+                } catch (TimeBudgetExceededException e) {
+                    exceeded = true;
+                }
+            }
+            if (exceeded) {
+                throw TimeBudgetExceededException.INSTANCE;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A {@link CharSequence} that aborts matching once its deadline has passed, since the regex engine
+     * reads the input through {@link #charAt(int)} as it backtracks
+     */
+    private static final class TimedCharSequence implements CharSequence {
+
+        private static final int CHECK_INTERVAL = 1024;
+
+        private final CharSequence sequence;
+        private final long deadline;
+        private int reads;
+
+        private TimedCharSequence(@NotNull CharSequence sequence, long deadline) {
+            this.sequence = sequence;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (++reads % CHECK_INTERVAL == 0 && System.nanoTime() > deadline) {
+                throw TimeBudgetExceededException.INSTANCE;
+            }
+            return sequence.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return sequence.length();
+        }
+
+        @NotNull
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new TimedCharSequence(sequence.subSequence(start, end), deadline);
+        }
+
+        @NotNull
+        @Override
+        public String toString() {
+            return sequence.toString();
+        }
+
+    }
+
+    private static final class TimeBudgetExceededException extends RuntimeException {
+
+        private static final TimeBudgetExceededException INSTANCE = new TimeBudgetExceededException();
+
+        private TimeBudgetExceededException() {
+            super("Regex filter time budget exceeded", null, false, false);
+        }
+
     }
 
 }
@@ -21,28 +21,30 @@ package net.william278.huskchat.filter;
 
 import de.exlll.configlib.Configuration;
 import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import net.william278.huskchat.user.OnlineUser;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A {@link ChatFilter} that filters against users sending the same message too many times
+ * <p>
+ * Previous messages are remembered as case-insensitive 64-bit hashes in a fixed-size ring per user.
  */
 public class RepeatFilter extends ChatFilter {
 
     /**
-     * Map of user {@link UUID}s to a queue recording the previous messages the user has sent
+     * Map of user {@link UUID}s to the hashes of the previous messages the user has sent
      */
-    private final HashMap<UUID, LinkedList<String>> userMessageQueues;
+    private final Map<UUID, MessageRing> userMessageRings = new ConcurrentHashMap<>();
 
     public RepeatFilter(@NotNull FilterSettings settings) {
         super(settings);
-        this.userMessageQueues = new HashMap<>();
     }
 
     @NotNull
@@ -52,22 +54,27 @@ public class RepeatFilter extends ChatFilter {
 
     @Override
     public boolean isAllowed(@NotNull OnlineUser player, @NotNull String message) {
-        if (!userMessageQueues.containsKey(player.getUuid())) {
-            userMessageQueues.put(player.getUuid(), new LinkedList<>());
+        final int size = ((RepeatFilterSettings) settings).getPreviousMessagesToCheck();
+        if (size <= 0) {
+            return true;
         }
-        if (!userMessageQueues.get(player.getUuid()).isEmpty()) {
-            for (String previousMessage : userMessageQueues.get(player.getUuid())) {
-                if (message.equalsIgnoreCase(previousMessage)) {
-                    return false;
-                }
-            }
-            if (userMessageQueues.get(player.getUuid()).size() + 1 >
-                    ((RepeatFilterSettings) settings).getPreviousMessagesToCheck()) {
-                userMessageQueues.get(player.getUuid()).removeLast();
-            }
+        return userMessageRings.computeIfAbsent(player.getUuid(), uuid -> new MessageRing(size))
+                .offer(hash(message));
+    }
+
+    @Override
+    public void onPlayerQuit(@NotNull UUID uuid) {
+        userMessageRings.remove(uuid);
+    }
+
+    // 64-bit FNV-1a hash of the message, folding case the same way as String#equalsIgnoreCase
+    private static long hash(@NotNull String message) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < message.length(); i++) {
+            hash ^= Character.toLowerCase(Character.toUpperCase(message.charAt(i)));
+            hash *= 0x100000001b3L;
         }
-        userMessageQueues.get(player.getUuid()).addFirst(message);
-        return true;
+        return hash;
     }
 
     @Override
@@ -82,10 +89,39 @@ public class RepeatFilter extends ChatFilter {
         return "huskchat.ignore_filters.spam";
     }
 
+    /**
+     * A fixed-size ring of message hashes
+     */
+    private static final class MessageRing {
+
+        private final long[] hashes;
+        private int count;
+        private int next;
+
+        private MessageRing(int size) {
+            this.hashes = new long[size];
+        }
+
+        // Returns false if the hash is in the ring; otherwise adds it, replacing the oldest hash if full
+        private synchronized boolean offer(long hash) {
+            for (int i = 0; i < count; i++) {
+                if (hashes[i] == hash) {
+                    return false;
+                }
+            }
+            hashes[next] = hash;
+            next = (next + 1) % hashes.length;
+            count = Math.min(count + 1, hashes.length);
+            return true;
+        }
+
+    }
+
 
     @Getter
     @Configuration
     @NoArgsConstructor(access = AccessLevel.PRIVATE)
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
     public static class RepeatFilterSettings extends FilterSettings {
         public int previousMessagesToCheck = 5;
     }
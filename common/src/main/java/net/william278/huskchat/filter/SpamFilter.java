@@ -21,30 +21,34 @@ package net.william278.huskchat.filter;
 
 import de.exlll.configlib.Configuration;
 import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import net.william278.huskchat.user.OnlineUser;
 import org.jetbrains.annotations.NotNull;
 
-import java.time.Instant;
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * A {@link ChatFilter} that filters against users sending too many messages into the chat
+ * <p>
+ * Each user has a token bucket of {@code messagesPerPeriod} messages that refills over {@code periodSeconds},
+ * tracked as a single "theoretical arrival time" (the generic cell rate algorithm), so per-user state is one
+ * {@code long} updated without locking.
  */
 public class SpamFilter extends ChatFilter {
 
     /**
-     * Map of user {@link UUID}s to a queue recording the timestamps of when that user
-     * last sent a message, used to calculate if the user is sending messages too quickly.
+     * Map of user {@link UUID}s to the time (in {@link System#nanoTime()}) at which their bucket will be full again
      */
-    private final HashMap<UUID, LinkedList<Long>> userMessageQueues;
+    private final Map<UUID, AtomicLong> userBuckets = new ConcurrentHashMap<>();
 
     public SpamFilter(@NotNull FilterSettings settings) {
         super(settings);
-        this.userMessageQueues = new HashMap<>();
     }
 
     @NotNull
@@ -54,21 +58,28 @@ public class SpamFilter extends ChatFilter {
 
     @Override
     public boolean isAllowed(@NotNull OnlineUser player, @NotNull String message) {
-        if (!userMessageQueues.containsKey(player.getUuid())) {
-            userMessageQueues.put(player.getUuid(), new LinkedList<>());
-        }
-        final long currentTimestamp = Instant.now().getEpochSecond();
-        if (!userMessageQueues.get(player.getUuid()).isEmpty()) {
-            final SpamFilterSettings spam = (SpamFilterSettings) settings;
-            if (currentTimestamp > userMessageQueues.get(player.getUuid()).getLast() + spam.getPeriodSeconds()) {
-                userMessageQueues.get(player.getUuid()).removeLast();
-            }
-            if (userMessageQueues.get(player.getUuid()).size() > spam.getMessagesPerPeriod()) {
+        final SpamFilterSettings spam = (SpamFilterSettings) settings;
+        final long period = TimeUnit.SECONDS.toNanos(spam.getPeriodSeconds());
+        final long interval = period / Math.max(1, spam.getMessagesPerPeriod());
+        final long tolerance = period - interval;
+
+        final AtomicLong bucket = userBuckets.computeIfAbsent(player.getUuid(), uuid -> new AtomicLong(Long.MIN_VALUE));
+        final long now = System.nanoTime();
+        while (true) {
+            final long fullAt = bucket.get();
+            final long arrival = fullAt == Long.MIN_VALUE || fullAt - now < 0 ? now : fullAt;
+            if (arrival - now > tolerance) {
                 return false;
             }
+            if (bucket.compareAndSet(fullAt, arrival + interval)) {
+                return true;
+            }
         }
-        userMessageQueues.get(player.getUuid()).addFirst(currentTimestamp);
-        return true;
+    }
+
+    @Override
+    public void onPlayerQuit(@NotNull UUID uuid) {
+        userBuckets.remove(uuid);
     }
 
     @Override
@@ -87,6 +98,7 @@ public class SpamFilter extends ChatFilter {
     @Getter
     @Configuration
     @NoArgsConstructor(access = AccessLevel.PRIVATE)
+    @AllArgsConstructor(access = AccessLevel.PACKAGE)
     public static class SpamFilterSettings extends FilterSettings {
         public int periodSeconds = 4;
         public int messagesPerPeriod = 3;
@@ -21,8 +21,10 @@ package net.william278.huskchat.getter;
 
 import net.luckperms.api.LuckPerms;
 import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
 import net.luckperms.api.model.group.Group;
 import net.luckperms.api.model.user.User;
+import net.william278.huskchat.HuskChat;
 import net.william278.huskchat.user.OnlineUser;
 import org.jetbrains.annotations.NotNull;
 
@@ -36,9 +38,13 @@ public class LuckPermsDataGetter extends DataGetter {
 
     private final LuckPerms api;
 
-    public LuckPermsDataGetter() {
+    public LuckPermsDataGetter(@NotNull HuskChat plugin) {
         super();
         this.api = LuckPermsProvider.get();
+
+        // Drop cached permission decisions as soon as LuckPerms recalculates a user's permissions
+        api.getEventBus().subscribe(plugin, UserDataRecalculateEvent.class,
+                event -> plugin.getUserRegistry().invalidatePermissions(event.getUser().getUniqueId()));
     }
 
     @Override
@@ -0,0 +1,96 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.listener;
+
+import net.william278.huskchat.HuskChat;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+/**
+ * Processes chat off the proxy's network threads, on a pool of worker threads.
+ * <p>
+ * Each player has a serial mailbox: a player's tasks run one after another in the order they were submitted,
+ * and a task that returns a pending future holds up the player's next task until it completes. Different
+ * players are processed in parallel. Tasks that fail are logged.
+ */
+public class ChatMailbox {
+
+    private final HuskChat plugin;
+    private final ExecutorService workers;
+    private final Map<UUID, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    public ChatMailbox(@NotNull HuskChat plugin, int threads) {
+        this.plugin = plugin;
+        final AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+            final Thread thread = new Thread(runnable, "HuskChat-Chat-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue a task in a player's mailbox
+     *
+     * @param player the UUID of the player
+     * @param task   the task, returning a future that completes when it has finished
+     * @param <T>    the result type of the task
+     * @return a future completing with the result of the task
+     */
+    @NotNull
+    public <T> CompletableFuture<T> submit(@NotNull UUID player, @NotNull Supplier<CompletableFuture<T>> task) {
+        @SuppressWarnings("unchecked") final CompletableFuture<T>[] queued = new CompletableFuture[1];
+        tails.compute(player, (uuid, tail) -> {
+            final CompletableFuture<?> previous = tail != null
+                    ? tail.handle((result, error) -> null)
+                    : CompletableFuture.completedFuture(null);
+            queued[0] = previous.thenComposeAsync(ignored -> task.get(), workers);
+            return queued[0];
+        });
+
+        // Drop the mailbox once it is drained, so it does not outlive the player
+        queued[0].whenComplete((result, error) -> {
+            tails.remove(player, queued[0]);
+            if (error != null) {
+                plugin.log(Level.SEVERE, "Failed to process chat from " + player,
+                        error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        });
+        return queued[0];
+    }
+
+    /**
+     * Stop the worker threads
+     */
+    public void close() {
+        workers.shutdownNow();
+    }
+
+}
@@ -50,9 +50,8 @@ public abstract class PlayerListener {
         }
 
         // Switch the player's channel away if their current channel is now restricted
-        plugin.getChannels().getChannels().stream()
-                .filter(channel -> channel.getId().equalsIgnoreCase(currentChannel.get()))
-                .findFirst().filter(channel -> channel.isServerRestricted(newServer))
+        plugin.getChannels().getChannel(currentChannel.get())
+                .filter(channel -> plugin.getChannels().isServerRestricted(channel, newServer))
                 .ifPresent(restricted -> plugin.editUserCache(c -> c
                         .switchPlayerChannel(player, plugin.getChannels().getDefaultChannel(), plugin)));
     }
@@ -70,6 +69,8 @@ public abstract class PlayerListener {
 
     // Handle player quits
     public final void handlePlayerQuit(@NotNull OnlineUser player) {
+        plugin.getFiltersAndReplacers().forEach(filter -> filter.onPlayerQuit(player.getUuid()));
+        plugin.getPlaceholderReplacers().forEach(replacer -> replacer.onPlayerQuit(player.getUuid()));
         if (plugin.getSettings().getJoinAndQuitMessages().getBroadcastScope() == Channel.BroadcastScope.PASSTHROUGH) {
             return;
         }
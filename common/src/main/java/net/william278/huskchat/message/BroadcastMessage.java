@@ -59,7 +59,7 @@ public class BroadcastMessage {
             message = event.getMessage();
 
             // If the message is to be filtered, then perform filter checks (unless they have the bypass permission)
-            final Optional<String> filtered = plugin.filter(sender, message, plugin.getBroadcastFilters());
+            final Optional<String> filtered = plugin.filter(sender, message, plugin.getBroadcastFilterChain());
             if (filtered.isEmpty()) {
                 return;
             }
@@ -26,10 +26,12 @@ import net.william278.huskchat.HuskChat;
 import net.william278.huskchat.channel.Channel;
 import net.william278.huskchat.user.ConsoleUser;
 import net.william278.huskchat.user.OnlineUser;
+import net.william278.huskchat.user.OnlineUserRegistry;
 import net.william278.huskchat.user.UserCache;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashSet;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicReference;
@@ -72,7 +74,7 @@ public class ChatMessage {
         }
 
         // Verify that the player is not sending a message from a server where channel access is restricted
-        if (channel.get().isServerRestricted(getSender().getServerName())) {
+        if (getPlugin().getChannels().isServerRestricted(channel.get(), getSender().getServerName())) {
             getPlugin().getLocales().sendMessage(getSender(), "error_channel_restricted_server", channel.get().getId());
             return true;
         }
@@ -88,21 +90,12 @@ public class ChatMessage {
             return true;
         }
 
-        final Optional<String> formatted = getPlugin().filter(getSender(), getMessage(), getPlugin().getChannelFilters(channel.get()));
+        final Optional<String> formatted = getPlugin().filter(getSender(), getMessage(), getPlugin().getChannelFilterChain(channel.get()));
         if (formatted.isEmpty()) {
             return true;
         }
         setMessage(formatted.get());
 
-        HashSet<OnlineUser> messageRecipients = new HashSet<>();
-        switch (scope) {
-            case GLOBAL, GLOBAL_PASSTHROUGH -> messageRecipients.addAll(getPlugin().getOnlinePlayers());
-            case LOCAL, LOCAL_PASSTHROUGH ->
-                    messageRecipients.addAll(getPlugin().getOnlinePlayersOnServer(getSender()));
-            default -> {
-            } // No message recipients if the channel is exclusively passed through; let the backend handle it
-        }
-
         // The events API has no effect on messages in passthrough channels.
         // Local/global passthrough channels will have their proxy-side message affected,
         // and non-passthrough messages will also be affected by the API.
@@ -118,38 +111,50 @@ public class ChatMessage {
                 getPlugin().getChannels().getChannel(event.getChannelId()).ifPresent(channel::set);
             }
 
-            // Dispatch message to all applicable users in the scope with permission who are not on a restricted server
-            messageRecipients.forEach(recipient -> {
-                boolean isSender = recipient.getUuid().equals(getSender().getUuid());
-                if (!isSender && !getChannel().canUserReceive(recipient)) {
-                    return;
-                }
-
-                if (channel.get().isServerRestricted(recipient.getServerName())) {
-                    return;
-                }
-                getPlugin().getLocales().sendChannelMessage(recipient, getSender(), channel.get(), getMessage(), getPlugin());
-
-
-                // If the message is on a local channel, dispatch local spy messages to appropriate spies.
-                if (getPlugin().getSettings().getLocalSpy().isEnabled()
-                        && !getPlugin().getSettings().getLocalSpy().getExcludedLocalChannels().contains(channel.get().getId())
-                        && scope.isOneOf(Channel.BroadcastScope.LOCAL, Channel.BroadcastScope.LOCAL_PASSTHROUGH)) {
-                    final Map<OnlineUser, UserCache.SpyColor> spies = getPlugin().getUserCache()
-                            .getLocalSpies(getSender().getServerName(), getPlugin());
-                    for (OnlineUser spy : spies.keySet()) {
-                        if (spy.getUuid().equals(getSender().getUuid())) {
-                            continue;
-                        }
-                        if (!spy.hasPermission("huskchat.command.localspy", false)) {
-                            plugin.editUserCache(c -> c.removeLocalSpy(spy));
-                            continue;
-                        }
-                        final UserCache.SpyColor color = spies.get(spy);
-                        getPlugin().getLocales().sendLocalSpy(spy, color, getSender(), channel.get(), getMessage(), getPlugin());
+            // Resolve the slots of the players in scope now, as slots freed while the event ran may be reused
+            final OnlineUserRegistry registry = getPlugin().getUserRegistry();
+            final BitSet messageRecipients = switch (scope) {
+                case GLOBAL, GLOBAL_PASSTHROUGH -> registry.getOnlineSlots();
+                case LOCAL, LOCAL_PASSTHROUGH -> registry.getServerSlots(
+                        registry.getServer(getSender().getUuid()).orElse(getSender().getServerName()));
+                default -> new BitSet(); // No message recipients if the channel is exclusively passed through; let the backend handle it
+            };
+
+            // Determine all applicable users in the scope with permission who are not on a restricted server
+            final int senderSlot = registry.getSlot(getSender().getUuid());
+            final boolean senderInScope = senderSlot >= 0 && messageRecipients.get(senderSlot);
+            getChannel().getPermissions().getReceive()
+                    .ifPresent(node -> registry.retainPermitted(messageRecipients, node));
+            if (senderInScope) {
+                messageRecipients.set(senderSlot);
+            }
+            registry.removeServers(messageRecipients,
+                    server -> getPlugin().getChannels().isServerRestricted(channel.get(), server));
+            final List<OnlineUser> eligibleRecipients = registry.getUsers(messageRecipients);
+
+            // If the message is on a local channel, dispatch local spy messages to appropriate spies.
+            if (getPlugin().getSettings().getLocalSpy().isEnabled()
+                    && !getPlugin().getSettings().getLocalSpy().getExcludedLocalChannels().contains(channel.get().getId())
+                    && scope.isOneOf(Channel.BroadcastScope.LOCAL, Channel.BroadcastScope.LOCAL_PASSTHROUGH)) {
+                final Map<UserCache.SpyColor, List<OnlineUser>> spies = getPlugin().getUserCache()
+                        .getLocalSpies(getSender().getServerName(), getPlugin());
+                spies.values().forEach(colorSpies -> colorSpies.removeIf(spy -> {
+                    if (spy.getUuid().equals(getSender().getUuid())) {
+                        return true;
                     }
-                }
-            });
+                    if (!spy.hasPermission("huskchat.command.localspy", false)) {
+                        plugin.editUserCache(c -> c.removeLocalSpy(spy));
+                        return true;
+                    }
+                    return false;
+                }));
+                spies.values().removeIf(List::isEmpty);
+                getPlugin().getLocales().sendLocalSpy(spies, getSender(), channel.get(), getMessage(), getPlugin());
+            }
+
+            // The rendered message only depends on the sender, so render it once and fan it out to recipients
+            getPlugin().getLocales().renderChannelMessage(getSender(), channel.get(), getMessage(), getPlugin())
+                    .thenAccept(rendered -> eligibleRecipients.forEach(recipient -> recipient.sendMessage(rendered)));
 
             // Log a message to console if enabled on the channel
             if (channel.get().isLogToConsole()) {
@@ -114,7 +114,7 @@ public class PrivateMessage {
         }
 
         // If the message is to be filtered, then perform filter checks (unless they have the bypass permission)
-        final Optional<String> filtered = plugin.filter(sender, message, plugin.getMessageFilters());
+        final Optional<String> filtered = plugin.filter(sender, message, plugin.getMessageFilterChain());
         if (filtered.isEmpty()) {
             return;
         }
@@ -145,18 +145,20 @@ public class PrivateMessage {
                 if (!(sender.hasPermission("huskchat.command.socialspy.bypass", false) || receivers.stream()
                         .findFirst().orElseThrow(() -> new IllegalStateException("No receivers available for message"))
                         .hasPermission("huskchat.command.socialspy.bypass", false))) {
-                    final Map<OnlineUser, UserCache.SpyColor> spies = plugin.getUserCache().getSocialSpies(receivers, plugin);
-                    for (OnlineUser spy : spies.keySet()) {
+                    final Map<UserCache.SpyColor, List<OnlineUser>> spies = plugin.getUserCache()
+                            .getSocialSpies(receivers, plugin);
+                    spies.values().forEach(colorSpies -> colorSpies.removeIf(spy -> {
                         if (spy.getUuid().equals(sender.getUuid())) {
-                            continue;
+                            return true;
                         }
                         if (!spy.hasPermission("huskchat.command.socialspy", false)) {
                             plugin.editUserCache(c -> c.removeSocialSpy(spy));
-                            continue;
+                            return true;
                         }
-                        final UserCache.SpyColor color = spies.get(spy);
-                        plugin.getLocales().sendSocialSpy(spy, color, sender, receivers, finalMessage.get(), plugin);
-                    }
+                        return false;
+                    }));
+                    spies.values().removeIf(List::isEmpty);
+                    plugin.getLocales().sendSocialSpy(spies, sender, receivers, finalMessage.get(), plugin);
                 }
 
             }
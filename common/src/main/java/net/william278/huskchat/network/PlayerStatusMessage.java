@@ -49,17 +49,23 @@ public class PlayerStatusMessage {
     private final long timestamp;
 
     @SerializedName("data")
-    private final Map<String, Object> data;
+    private final StatusPayload payload;
 
-    public PlayerStatusMessage(@NotNull MessageType messageType, @NotNull UUID playerUuid, 
-                              @NotNull String playerName, @NotNull String serverName, 
-                              @NotNull Map<String, Object> data) {
+    public PlayerStatusMessage(@NotNull MessageType messageType, @NotNull UUID playerUuid,
+                              @NotNull String playerName, @NotNull String serverName,
+                              @NotNull StatusPayload payload) {
+        this(messageType, playerUuid, playerName, serverName, System.currentTimeMillis(), payload);
+    }
+
+    public PlayerStatusMessage(@NotNull MessageType messageType, @NotNull UUID playerUuid,
+                              @NotNull String playerName, @NotNull String serverName,
+                              long timestamp, @NotNull StatusPayload payload) {
         this.messageType = messageType;
         this.playerUuid = playerUuid;
         this.playerName = playerName;
         this.serverName = serverName;
-        this.data = data;
-        this.timestamp = System.currentTimeMillis();
+        this.timestamp = timestamp;
+        this.payload = payload;
     }
 
     @NotNull
@@ -87,8 +93,34 @@ public class PlayerStatusMessage {
     }
 
     @NotNull
+    public StatusPayload getPayload() {
+        return payload;
+    }
+
+    /**
+     * 获取特定类型的负载
+     * Get the payload if it is of a specific type
+     *
+     * @param type 负载类型 / payload type
+     * @param <T>  负载类型 / payload type
+     * @return 负载 / payload
+     */
+    @Nullable
+    public <T extends StatusPayload> T getPayload(@NotNull Class<T> type) {
+        return type.isInstance(payload) ? type.cast(payload) : null;
+    }
+
+    /**
+     * 获取键值形式的数据
+     * Get the data in key/value form
+     *
+     * @return 数据 / data
+     * @deprecated 使用 {@link #getPayload()} / use {@link #getPayload()}
+     */
+    @NotNull
+    @Deprecated
     public Map<String, Object> getData() {
-        return data;
+        return payload.toData();
     }
 
     /**
@@ -97,10 +129,12 @@ public class PlayerStatusMessage {
      *
      * @param key 键 / key
      * @return 值 / value
+     * @deprecated 使用 {@link #getPayload()} / use {@link #getPayload()}
      */
     @Nullable
+    @Deprecated
     public Object getData(@NotNull String key) {
-        return data.get(key);
+        return payload.toData().get(key);
     }
 
     /**
@@ -111,11 +145,13 @@ public class PlayerStatusMessage {
      * @param type 类型 / type
      * @param <T> 泛型类型 / generic type
      * @return 值 / value
+     * @deprecated 使用 {@link #getPayload(Class)} / use {@link #getPayload(Class)}
      */
     @Nullable
+    @Deprecated
     @SuppressWarnings("unchecked")
     public <T> T getData(@NotNull String key, @NotNull Class<T> type) {
-        Object value = data.get(key);
+        Object value = payload.toData().get(key);
         if (value != null && type.isAssignableFrom(value.getClass())) {
             return (T) value;
         }
@@ -132,61 +168,78 @@ public class PlayerStatusMessage {
          * Player status update
          */
         @SerializedName("status_update")
-        STATUS_UPDATE("status_update"),
+        STATUS_UPDATE("status_update", 1),
 
         /**
          * 玩家生命值变化
          * Player health change
          */
         @SerializedName("health_change")
-        HEALTH_CHANGE("health_change"),
+        HEALTH_CHANGE("health_change", 2),
 
         /**
          * 玩家位置变化
          * Player location change
          */
         @SerializedName("location_change")
-        LOCATION_CHANGE("location_change"),
+        LOCATION_CHANGE("location_change", 3),
 
         /**
          * 玩家死亡
          * Player death
          */
         @SerializedName("player_death")
-        PLAYER_DEATH("player_death"),
+        PLAYER_DEATH("player_death", 4),
 
         /**
          * 玩家重生
          * Player respawn
          */
         @SerializedName("player_respawn")
-        PLAYER_RESPAWN("player_respawn"),
+        PLAYER_RESPAWN("player_respawn", 5),
 
         /**
          * 命令执行
          * Command execution
          */
         @SerializedName("command_execution")
-        COMMAND_EXECUTION("command_execution"),
+        COMMAND_EXECUTION("command_execution", 6),
 
         /**
          * 状态同步请求
          * Status sync request
          */
         @SerializedName("sync_request")
-        SYNC_REQUEST("sync_request"),
+        SYNC_REQUEST("sync_request", 7),
 
         /**
          * 状态同步响应
          * Status sync response
          */
         @SerializedName("sync_response")
-        SYNC_RESPONSE("sync_response");
+        SYNC_RESPONSE("sync_response", 8),
+
+        /**
+         * 代理服务器订阅的状态
+         * Statuses the proxy subscribes to
+         */
+        @SerializedName("subscription")
+        SUBSCRIPTION("subscription", 9);
+
+        private static final MessageType[] BY_ID = new MessageType[256];
+
+        static {
+            for (MessageType type : values()) {
+                BY_ID[type.id] = type;
+            }
+        }
 
         private final String key;
+        private final int id;
 
-        MessageType(@NotNull String key) {
+        MessageType(@NotNull String key, int id) {
             this.key = key;
+            this.id = id;
         }
 
         @NotNull
@@ -194,6 +247,25 @@ public class PlayerStatusMessage {
             return key;
         }
 
+        /**
+         * 获取二进制格式中的类型ID
+         * Get the id of the type in the binary format
+         *
+         * @return 类型ID / type id
+         */
+        public int getId() {
+            return id;
+        }
+
+        @NotNull
+        public static MessageType fromId(int id) {
+            final MessageType type = id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+            if (type == null) {
+                throw new IllegalArgumentException("Unknown message type id: " + id);
+            }
+            return type;
+        }
+
         @NotNull
         public static MessageType fromKey(@NotNull String key) {
             for (MessageType type : values()) {
@@ -210,15 +282,11 @@ public class PlayerStatusMessage {
      * Create status update message
      */
     @NotNull
-    public static PlayerStatusMessage createStatusUpdate(@NotNull UUID playerUuid, @NotNull String playerName, 
-                                                        @NotNull String serverName, @NotNull PlayerStatusChangeEvent.StatusType statusType, 
-                                                        @NotNull Object value, @NotNull String reason) {
-        Map<String, Object> data = Map.of(
-            "status_type", statusType.getKey(),
-            "value", value,
-            "reason", reason
-        );
-        return new PlayerStatusMessage(MessageType.STATUS_UPDATE, playerUuid, playerName, serverName, data);
+    public static PlayerStatusMessage createStatusUpdate(@NotNull UUID playerUuid, @NotNull String playerName,
+                                                        @NotNull String serverName, @NotNull PlayerStatusChangeEvent.StatusType statusType,
+                                                        @Nullable Object value, @NotNull String reason) {
+        return new PlayerStatusMessage(MessageType.STATUS_UPDATE, playerUuid, playerName, serverName,
+                new StatusPayload.StatusUpdate(statusType, value, reason));
     }
 
     /**
@@ -226,16 +294,11 @@ public class PlayerStatusMessage {
      * Create health change message
      */
     @NotNull
-    public static PlayerStatusMessage createHealthChange(@NotNull UUID playerUuid, @NotNull String playerName, 
-                                                        @NotNull String serverName, double previousHealth, 
+    public static PlayerStatusMessage createHealthChange(@NotNull UUID playerUuid, @NotNull String playerName,
+                                                        @NotNull String serverName, double previousHealth,
                                                         double newHealth, double maxHealth, @NotNull String reason) {
-        Map<String, Object> data = Map.of(
-            "previous_health", previousHealth,
-            "new_health", newHealth,
-            "max_health", maxHealth,
-            "reason", reason
-        );
-        return new PlayerStatusMessage(MessageType.HEALTH_CHANGE, playerUuid, playerName, serverName, data);
+        return new PlayerStatusMessage(MessageType.HEALTH_CHANGE, playerUuid, playerName, serverName,
+                new StatusPayload.HealthChange(previousHealth, newHealth, maxHealth, reason));
     }
 
     /**
@@ -243,9 +306,44 @@ public class PlayerStatusMessage {
      * Create location change message
      */
     @NotNull
-    public static PlayerStatusMessage createLocationChange(@NotNull UUID playerUuid, @NotNull String playerName, 
-                                                          @NotNull String serverName, @NotNull Map<String, Object> locationData) {
-        return new PlayerStatusMessage(MessageType.LOCATION_CHANGE, playerUuid, playerName, serverName, locationData);
+    public static PlayerStatusMessage createLocationChange(@NotNull UUID playerUuid, @NotNull String playerName,
+                                                          @NotNull String serverName, @NotNull StatusPayload.Position from,
+                                                          @NotNull StatusPayload.Position to) {
+        return new PlayerStatusMessage(MessageType.LOCATION_CHANGE, playerUuid, playerName, serverName,
+                new StatusPayload.LocationChange(from, to));
+    }
+
+    /**
+     * 创建玩家死亡消息
+     * Create player death message
+     */
+    @NotNull
+    public static PlayerStatusMessage createPlayerDeath(@NotNull UUID playerUuid, @NotNull String playerName,
+                                                       @NotNull String serverName, @NotNull String deathMessage,
+                                                       @Nullable String killer) {
+        return new PlayerStatusMessage(MessageType.PLAYER_DEATH, playerUuid, playerName, serverName,
+                new StatusPayload.PlayerDeath(deathMessage, killer));
+    }
+
+    /**
+     * 创建玩家重生消息
+     * Create player respawn message
+     */
+    @NotNull
+    public static PlayerStatusMessage createPlayerRespawn(@NotNull UUID playerUuid, @NotNull String playerName,
+                                                         @NotNull String serverName, @NotNull String reason) {
+        return new PlayerStatusMessage(MessageType.PLAYER_RESPAWN, playerUuid, playerName, serverName,
+                new StatusPayload.PlayerRespawn(reason));
+    }
+
+    /**
+     * 创建请求所有状态的同步请求消息
+     * Create sync request message for all statuses
+     */
+    @NotNull
+    public static PlayerStatusMessage createSyncRequest(@NotNull UUID playerUuid, @NotNull String playerName,
+                                                       @NotNull String serverName) {
+        return createSyncRequest(playerUuid, playerName, serverName, StatusPayload.SyncRequest.FULL);
     }
 
     /**
@@ -253,9 +351,10 @@ public class PlayerStatusMessage {
      * Create sync request message
      */
     @NotNull
-    public static PlayerStatusMessage createSyncRequest(@NotNull UUID playerUuid, @NotNull String playerName, 
-                                                       @NotNull String serverName) {
-        return new PlayerStatusMessage(MessageType.SYNC_REQUEST, playerUuid, playerName, serverName, Map.of());
+    public static PlayerStatusMessage createSyncRequest(@NotNull UUID playerUuid, @NotNull String playerName,
+                                                       @NotNull String serverName,
+                                                       @NotNull StatusPayload.SyncRequest request) {
+        return new PlayerStatusMessage(MessageType.SYNC_REQUEST, playerUuid, playerName, serverName, request);
     }
 
     /**
@@ -263,14 +362,26 @@ public class PlayerStatusMessage {
      * Create sync response message
      */
     @NotNull
-    public static PlayerStatusMessage createSyncResponse(@NotNull UUID playerUuid, @NotNull String playerName, 
-                                                        @NotNull String serverName, @NotNull Map<String, Object> allStatuses) {
-        return new PlayerStatusMessage(MessageType.SYNC_RESPONSE, playerUuid, playerName, serverName, allStatuses);
+    public static PlayerStatusMessage createSyncResponse(@NotNull UUID playerUuid, @NotNull String playerName,
+                                                        @NotNull String serverName,
+                                                        @NotNull StatusPayload.SyncResponse response) {
+        return new PlayerStatusMessage(MessageType.SYNC_RESPONSE, playerUuid, playerName, serverName, response);
+    }
+
+    /**
+     * 创建订阅消息
+     * Create subscription message
+     */
+    @NotNull
+    public static PlayerStatusMessage createSubscription(@NotNull UUID playerUuid, @NotNull String playerName,
+                                                        @NotNull String serverName,
+                                                        @NotNull StatusPayload.Subscription subscription) {
+        return new PlayerStatusMessage(MessageType.SUBSCRIPTION, playerUuid, playerName, serverName, subscription);
     }
 
     @Override
     public String toString() {
-        return String.format("PlayerStatusMessage{type=%s, player=%s(%s), server=%s, timestamp=%d, data=%s}",
-                messageType, playerName, playerUuid, serverName, timestamp, data);
+        return String.format("PlayerStatusMessage{type=%s, player=%s(%s), server=%s, timestamp=%d, payload=%s}",
+                messageType, playerName, playerUuid, serverName, timestamp, payload);
     }
 }
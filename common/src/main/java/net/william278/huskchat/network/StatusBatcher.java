@@ -0,0 +1,160 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import net.william278.huskchat.event.PlayerStatusChangeEvent.StatusType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * 累积玩家状态变化，并按帧批量发送
+ * Accumulates player status changes and drains them as batched frames
+ * <p>
+ * Only the latest value of each field is kept between frames, and values that are unchanged since they were last sent
+ * are dropped. Health and location changes keep the value they started from, so a frame covers the whole change.
+ * Fields can be rate limited per message type, in which case they stay pending until they are due. Other messages,
+ * such as deaths, are sent in order with the next frame.
+ */
+public class StatusBatcher {
+
+    private final Map<PlayerStatusMessage.MessageType, Long> intervals;
+    private final Map<UUID, PlayerState> players = new LinkedHashMap<>();
+
+    /**
+     * 创建批处理器
+     * Create a batcher
+     *
+     * @param intervals 每种消息类型两次发送之间的最短间隔（毫秒）/ minimum milliseconds between sends of each message type
+     */
+    public StatusBatcher(@NotNull Map<PlayerStatusMessage.MessageType, Long> intervals) {
+        this.intervals = new EnumMap<>(PlayerStatusMessage.MessageType.class);
+        this.intervals.putAll(intervals);
+    }
+
+    /**
+     * 记录一条消息
+     * Record a message to be sent
+     *
+     * @param message 消息 / message
+     */
+    public synchronized void record(@NotNull PlayerStatusMessage message) {
+        final PlayerState state = players.computeIfAbsent(message.getPlayerUuid(), uuid -> new PlayerState());
+        state.name = message.getPlayerName();
+        final StatusPayload payload = message.getPayload();
+        if (payload instanceof StatusPayload.StatusUpdate update) {
+            state.recordUpdate(update);
+        } else if (payload instanceof StatusPayload.HealthChange health) {
+            state.health = state.health == null ? health : new StatusPayload.HealthChange(
+                    state.health.previousHealth(), health.newHealth(), health.maxHealth(), health.reason());
+        } else if (payload instanceof StatusPayload.LocationChange location) {
+            state.location = state.location == null ? location
+                    : new StatusPayload.LocationChange(state.location.from(), location.to());
+        } else {
+            state.events.add(message);
+        }
+    }
+
+    /**
+     * 取出所有到期的变化
+     * Drain all changes that are due to be sent
+     *
+     * @param serverName 服务器名称 / server name
+     * @param now        当前时间（毫秒）/ the current time, in milliseconds
+     * @return 状态帧，若没有要发送的内容则为null / the frame, or null if there is nothing to send
+     */
+    @Nullable
+    public synchronized StatusFrame drain(@NotNull String serverName, long now) {
+        final List<PlayerStatusMessage> messages = new ArrayList<>();
+        players.forEach((uuid, state) -> state.drain(uuid, serverName, now, messages));
+        return messages.isEmpty() ? null : new StatusFrame(serverName, now, messages);
+    }
+
+    /**
+     * 丢弃玩家的状态（例如玩家退出时）
+     * Forget the state of a player, e.g. when they quit
+     *
+     * @param player 玩家UUID / player UUID
+     */
+    public synchronized void forget(@NotNull UUID player) {
+        players.remove(player);
+    }
+
+    private final class PlayerState {
+
+        private final Map<StatusType, StatusPayload.StatusUpdate> updates = new EnumMap<>(StatusType.class);
+        private final Map<StatusType, Object> sent = new EnumMap<>(StatusType.class);
+        private final List<PlayerStatusMessage> events = new ArrayList<>();
+        private final Map<PlayerStatusMessage.MessageType, Long> lastSent =
+                new EnumMap<>(PlayerStatusMessage.MessageType.class);
+        private String name;
+        private StatusPayload.HealthChange health;
+        private StatusPayload.LocationChange location;
+
+        private void recordUpdate(@NotNull StatusPayload.StatusUpdate update) {
+            if (Objects.equals(sent.get(update.statusType()), update.value())
+                    && (update.value() != null || sent.containsKey(update.statusType()))) {
+                updates.remove(update.statusType());
+                return;
+            }
+            updates.put(update.statusType(), update);
+        }
+
+        private void drain(@NotNull UUID uuid, @NotNull String server, long now,
+                           @NotNull List<PlayerStatusMessage> messages) {
+            events.forEach(event -> messages.add(new PlayerStatusMessage(event.getMessageType(), uuid, name,
+                    server, now, event.getPayload())));
+            events.clear();
+
+            if (health != null && isDue(PlayerStatusMessage.MessageType.HEALTH_CHANGE, now)) {
+                messages.add(new PlayerStatusMessage(PlayerStatusMessage.MessageType.HEALTH_CHANGE,
+                        uuid, name, server, now, health));
+                health = null;
+            }
+            if (location != null && isDue(PlayerStatusMessage.MessageType.LOCATION_CHANGE, now)) {
+                messages.add(new PlayerStatusMessage(PlayerStatusMessage.MessageType.LOCATION_CHANGE,
+                        uuid, name, server, now, location));
+                location = null;
+            }
+            if (!updates.isEmpty() && isDue(PlayerStatusMessage.MessageType.STATUS_UPDATE, now)) {
+                updates.forEach((statusType, update) -> {
+                    sent.put(statusType, update.value());
+                    messages.add(new PlayerStatusMessage(PlayerStatusMessage.MessageType.STATUS_UPDATE,
+                            uuid, name, server, now, update));
+                });
+                updates.clear();
+            }
+        }
+
+        // Check whether a message type is due to be sent, and if so record it as sent
+        private boolean isDue(@NotNull PlayerStatusMessage.MessageType type, long now) {
+            final long interval = intervals.getOrDefault(type, 0L);
+            final Long last = lastSent.get(type);
+            if (interval > 0 && last != null && now - last < interval) {
+                return false;
+            }
+            lastSent.put(type, now);
+            return true;
+        }
+
+    }
+
+}
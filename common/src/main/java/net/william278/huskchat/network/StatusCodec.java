@@ -0,0 +1,604 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import net.william278.huskchat.event.PlayerStatusChangeEvent.StatusType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * 玩家状态消息的编解码器
+ * Codec for player status messages sent over the {@code huskchat:player_status} channel
+ * <p>
+ * Messages are encoded in a versioned binary format: a version byte, a table of the strings used by the message
+ * (so each server, world or player name is written once and referenced by index), a one-byte message type, the raw
+ * 16-byte player UUID, varints and fixed-width doubles. Several messages can be sent together as a {@link StatusFrame}.
+ * The JSON format is kept for debugging, and is recognised when decoding by its leading {@code '{'} or {@code '['}.
+ */
+public final class StatusCodec {
+
+    /**
+     * 二进制格式版本 / Version of the binary format
+     */
+    public static final byte VERSION = 2;
+
+    private static final Type DATA_TYPE = new TypeToken<Map<String, Object>>() {
+    }.getType();
+    private static final StatusType[] STATUS_TYPES = StatusType.values();
+
+    // Type id of frames, which no message type uses
+    private static final int FRAME = 0;
+
+    // Tags of status values
+    private static final int NULL = 0;
+    private static final int FALSE = 1;
+    private static final int TRUE = 2;
+    private static final int INT = 3;
+    private static final int LONG = 4;
+    private static final int DOUBLE = 5;
+    private static final int STRING = 6;
+
+    private final Gson gson;
+    private final boolean json;
+
+    /**
+     * 创建编解码器
+     * Create a codec
+     *
+     * @param gson Gson实例 / Gson instance
+     * @param json 是否以JSON编码（用于调试）/ whether to encode as JSON, for debugging
+     */
+    public StatusCodec(@NotNull Gson gson, boolean json) {
+        this.gson = gson;
+        this.json = json;
+    }
+
+    /**
+     * 编码消息
+     * Encode a message
+     *
+     * @param message 消息 / message
+     * @return 编码后的字节 / encoded bytes
+     */
+    public byte[] encode(@NotNull PlayerStatusMessage message) {
+        if (json) {
+            return gson.toJson(toJson(message)).getBytes(StandardCharsets.UTF_8);
+        }
+        final Output out = new Output();
+        out.writeByte(VERSION);
+        out.writeByte(message.getMessageType().getId());
+        out.writeUuid(message.getPlayerUuid());
+        out.writeString(message.getPlayerName());
+        out.writeString(message.getServerName());
+        out.writeVarLong(message.getTimestamp());
+        writePayload(out, message.getPayload());
+        return out.toByteArray();
+    }
+
+    /**
+     * 编码状态帧；同一玩家的消息共用其UUID和名称，所有消息共用服务器名称和时间戳
+     * Encode a frame; messages for the same player share its UUID and name, and all messages share the server name
+     * and timestamp of the frame
+     *
+     * @param frame 状态帧 / frame
+     * @return 编码后的字节 / encoded bytes
+     */
+    public byte[] encode(@NotNull StatusFrame frame) {
+        if (json) {
+            final JsonArray array = new JsonArray();
+            frame.messages().forEach(message -> array.add(toJson(message)));
+            return gson.toJson(array).getBytes(StandardCharsets.UTF_8);
+        }
+        final Map<UUID, List<PlayerStatusMessage>> players = new LinkedHashMap<>();
+        frame.messages().forEach(message -> players
+                .computeIfAbsent(message.getPlayerUuid(), uuid -> new ArrayList<>()).add(message));
+
+        final Output out = new Output();
+        out.writeByte(VERSION);
+        out.writeByte(FRAME);
+        out.writeString(frame.serverName());
+        out.writeVarLong(frame.timestamp());
+        out.writeVarInt(players.size());
+        players.forEach((uuid, messages) -> {
+            out.writeUuid(uuid);
+            out.writeString(messages.get(0).getPlayerName());
+            out.writeVarInt(messages.size());
+            messages.forEach(message -> {
+                out.writeByte(message.getMessageType().getId());
+                writePayload(out, message.getPayload());
+            });
+        });
+        return out.toByteArray();
+    }
+
+    /**
+     * 解码单条消息
+     * Decode a single message
+     *
+     * @param data 字节 / bytes
+     * @return 消息 / message
+     * @throws IllegalArgumentException 如果消息格式无效或不是单条消息 / if the message is malformed or not a single message
+     */
+    @NotNull
+    public PlayerStatusMessage decode(byte[] data) throws IllegalArgumentException {
+        final List<PlayerStatusMessage> messages = decodeAll(data);
+        if (messages.size() != 1) {
+            throw new IllegalArgumentException("Expected a single player status message");
+        }
+        return messages.get(0);
+    }
+
+    /**
+     * 解码单条消息或状态帧中的所有消息
+     * Decode a single message, or all the messages in a frame
+     *
+     * @param data 字节 / bytes
+     * @return 消息 / messages
+     * @throws IllegalArgumentException 如果消息格式无效 / if the message is malformed
+     */
+    @NotNull
+    public List<PlayerStatusMessage> decodeAll(byte[] data) throws IllegalArgumentException {
+        if (data.length > 0 && (data[0] == '{' || data[0] == '[')) {
+            return decodeJson(data);
+        }
+        try {
+            final Input in = new Input(data);
+            if (in.getVersion() != VERSION) {
+                throw new IllegalArgumentException("Unsupported player status message version: " + in.getVersion());
+            }
+            final int type = in.readByte();
+            if (type == FRAME) {
+                return readFrame(in);
+            }
+            final PlayerStatusMessage.MessageType messageType = PlayerStatusMessage.MessageType.fromId(type);
+            final UUID uuid = in.readUuid();
+            final String name = in.readString();
+            final String server = in.readString();
+            final long timestamp = in.readVarLong();
+            return List.of(new PlayerStatusMessage(messageType, uuid, name, server, timestamp,
+                    readPayload(in, messageType)));
+        } catch (IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated player status message", e);
+        }
+    }
+
+    @NotNull
+    private static List<PlayerStatusMessage> readFrame(@NotNull Input in) {
+        final String server = in.readString();
+        final long timestamp = in.readVarLong();
+        final List<PlayerStatusMessage> messages = new ArrayList<>();
+        for (int players = in.readVarInt(); players > 0; players--) {
+            final UUID uuid = in.readUuid();
+            final String name = in.readString();
+            for (int count = in.readVarInt(); count > 0; count--) {
+                final PlayerStatusMessage.MessageType type = PlayerStatusMessage.MessageType.fromId(in.readByte());
+                messages.add(new PlayerStatusMessage(type, uuid, name, server, timestamp, readPayload(in, type)));
+            }
+        }
+        return messages;
+    }
+
+    private static void writePayload(@NotNull Output out, @NotNull StatusPayload payload) {
+        if (payload instanceof StatusPayload.StatusUpdate update) {
+            out.writeVarInt(update.statusType().ordinal());
+            writeValue(out, update.value());
+            out.writeString(update.reason());
+        } else if (payload instanceof StatusPayload.HealthChange health) {
+            out.writeDouble(health.previousHealth());
+            out.writeDouble(health.newHealth());
+            out.writeDouble(health.maxHealth());
+            out.writeString(health.reason());
+        } else if (payload instanceof StatusPayload.LocationChange location) {
+            writePosition(out, location.from());
+            writePosition(out, location.to());
+        } else if (payload instanceof StatusPayload.PlayerDeath death) {
+            out.writeString(death.deathMessage());
+            out.writeBoolean(death.killer() != null);
+            if (death.killer() != null) {
+                out.writeString(death.killer());
+            }
+        } else if (payload instanceof StatusPayload.PlayerRespawn respawn) {
+            out.writeString(respawn.reason());
+        } else if (payload instanceof StatusPayload.Subscription subscription) {
+            out.writeVarLong(mask(subscription.messageTypes(), PlayerStatusMessage.MessageType::getId));
+            out.writeVarLong(mask(subscription.statusTypes(), StatusType::ordinal));
+        } else if (payload instanceof StatusPayload.SyncRequest request) {
+            out.writeVarLong(request.epoch());
+            out.writeVarLong(request.version());
+        } else if (payload instanceof StatusPayload.SyncResponse sync) {
+            out.writeVarLong(sync.epoch());
+            out.writeVarLong(sync.version());
+            out.writeVarInt(sync.statuses().size());
+            sync.statuses().forEach((statusType, value) -> {
+                out.writeVarInt(statusType.ordinal());
+                writeValue(out, value);
+            });
+        }
+    }
+
+    @NotNull
+    private static StatusPayload readPayload(@NotNull Input in, @NotNull PlayerStatusMessage.MessageType type) {
+        return switch (type) {
+            case STATUS_UPDATE -> {
+                final StatusType statusType = readStatusType(in);
+                yield new StatusPayload.StatusUpdate(statusType, readValue(in), in.readString());
+            }
+            case HEALTH_CHANGE -> new StatusPayload.HealthChange(in.readDouble(), in.readDouble(),
+                    in.readDouble(), in.readString());
+            case LOCATION_CHANGE -> new StatusPayload.LocationChange(readPosition(in), readPosition(in));
+            case PLAYER_DEATH -> new StatusPayload.PlayerDeath(in.readString(),
+                    in.readBoolean() ? in.readString() : null);
+            case PLAYER_RESPAWN -> new StatusPayload.PlayerRespawn(in.readString());
+            case SYNC_REQUEST -> new StatusPayload.SyncRequest(in.readVarLong(), in.readVarLong());
+            case SYNC_RESPONSE -> {
+                final long epoch = in.readVarLong();
+                final long version = in.readVarLong();
+                final Map<StatusType, Object> statuses = new EnumMap<>(StatusType.class);
+                for (int i = in.readVarInt(); i > 0; i--) {
+                    final StatusType statusType = readStatusType(in);
+                    final Object value = readValue(in);
+                    if (value != null) {
+                        statuses.put(statusType, value);
+                    }
+                }
+                yield new StatusPayload.SyncResponse(epoch, version, statuses);
+            }
+            case SUBSCRIPTION -> {
+                final long messages = in.readVarLong();
+                final long statuses = in.readVarLong();
+                final Set<PlayerStatusMessage.MessageType> messageTypes =
+                        EnumSet.noneOf(PlayerStatusMessage.MessageType.class);
+                for (PlayerStatusMessage.MessageType messageType : PlayerStatusMessage.MessageType.values()) {
+                    if ((messages & (1L << messageType.getId())) != 0) {
+                        messageTypes.add(messageType);
+                    }
+                }
+                final Set<StatusType> statusTypes = EnumSet.noneOf(StatusType.class);
+                for (StatusType statusType : STATUS_TYPES) {
+                    if ((statuses & (1L << statusType.ordinal())) != 0) {
+                        statusTypes.add(statusType);
+                    }
+                }
+                yield new StatusPayload.Subscription(messageTypes, statusTypes);
+            }
+            case COMMAND_EXECUTION -> StatusPayload.Empty.INSTANCE;
+        };
+    }
+
+    // Encode a set of types as a bitmask of their ids
+    private static <E> long mask(@NotNull Set<E> values, @NotNull ToIntFunction<E> id) {
+        long mask = 0;
+        for (E value : values) {
+            mask |= 1L << id.applyAsInt(value);
+        }
+        return mask;
+    }
+
+    private static void writePosition(@NotNull Output out, @NotNull StatusPayload.Position position) {
+        out.writeString(position.world());
+        out.writeDouble(position.x());
+        out.writeDouble(position.y());
+        out.writeDouble(position.z());
+    }
+
+    @NotNull
+    private static StatusPayload.Position readPosition(@NotNull Input in) {
+        return new StatusPayload.Position(in.readString(), in.readDouble(), in.readDouble(), in.readDouble());
+    }
+
+    @NotNull
+    private static StatusType readStatusType(@NotNull Input in) {
+        final int ordinal = in.readVarInt();
+        if (ordinal < 0 || ordinal >= STATUS_TYPES.length) {
+            throw new IllegalArgumentException("Unknown status type: " + ordinal);
+        }
+        return STATUS_TYPES[ordinal];
+    }
+
+    static void writeValue(@NotNull Output out, @Nullable Object value) {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Boolean bool) {
+            out.writeByte(bool ? TRUE : FALSE);
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(INT);
+            out.writeVarInt(zigZag(((Number) value).intValue()));
+        } else if (value instanceof Long number) {
+            out.writeByte(LONG);
+            out.writeVarLong(zigZag(number));
+        } else if (value instanceof Number number) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(number.doubleValue());
+        } else {
+            out.writeByte(STRING);
+            out.writeString(value.toString());
+        }
+    }
+
+    @Nullable
+    static Object readValue(@NotNull Input in) {
+        final int tag = in.readByte();
+        return switch (tag) {
+            case NULL -> null;
+            case FALSE -> false;
+            case TRUE -> true;
+            case INT -> unZigZag(in.readVarInt());
+            case LONG -> unZigZag(in.readVarLong());
+            case DOUBLE -> in.readDouble();
+            case STRING -> in.readString();
+            default -> throw new IllegalArgumentException("Unknown status value tag: " + tag);
+        };
+    }
+
+    private static int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int unZigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @NotNull
+    private JsonObject toJson(@NotNull PlayerStatusMessage message) {
+        final JsonObject object = new JsonObject();
+        object.addProperty("message_type", message.getMessageType().getKey());
+        object.addProperty("player_uuid", message.getPlayerUuid().toString());
+        object.addProperty("player_name", message.getPlayerName());
+        object.addProperty("server_name", message.getServerName());
+        object.addProperty("timestamp", message.getTimestamp());
+        object.add("data", gson.toJsonTree(message.getPayload().toData()));
+        return object;
+    }
+
+    @NotNull
+    private List<PlayerStatusMessage> decodeJson(byte[] data) {
+        try {
+            final JsonElement element = JsonParser.parseString(new String(data, StandardCharsets.UTF_8));
+            if (!element.isJsonArray()) {
+                return List.of(fromJson(element.getAsJsonObject()));
+            }
+            final List<PlayerStatusMessage> messages = new ArrayList<>();
+            element.getAsJsonArray().forEach(message -> messages.add(fromJson(message.getAsJsonObject())));
+            return messages;
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid JSON player status message", e);
+        }
+    }
+
+    @NotNull
+    private PlayerStatusMessage fromJson(@NotNull JsonObject object) {
+        final PlayerStatusMessage.MessageType type = PlayerStatusMessage.MessageType.fromKey(
+                object.get("message_type").getAsString());
+        final Map<String, Object> payload = object.has("data")
+                ? gson.fromJson(object.get("data"), DATA_TYPE) : Map.of();
+        return new PlayerStatusMessage(type,
+                UUID.fromString(object.get("player_uuid").getAsString()),
+                object.get("player_name").getAsString(),
+                object.get("server_name").getAsString(),
+                object.has("timestamp") ? object.get("timestamp").getAsLong() : System.currentTimeMillis(),
+                StatusPayload.fromData(type, payload != null ? payload : Map.of()));
+    }
+
+    /**
+     * 二进制输出缓冲区，字符串写入字符串表并以索引引用
+     * Binary output buffer; strings are written to a string table and referenced by index
+     */
+    static final class Output {
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private byte[] buffer = new byte[64];
+        private int position;
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBoolean(boolean value) {
+            writeByte(value ? 1 : 0);
+        }
+
+        void writeVarInt(int value) {
+            while ((value & ~0x7F) != 0) {
+                writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte(value);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        void writeLong(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >>> shift);
+            }
+        }
+
+        void writeDouble(double value) {
+            writeLong(Double.doubleToLongBits(value));
+        }
+
+        void writeUuid(@NotNull UUID uuid) {
+            writeLong(uuid.getMostSignificantBits());
+            writeLong(uuid.getLeastSignificantBits());
+        }
+
+        void writeString(@NotNull String value) {
+            Integer index = strings.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.put(value, index);
+            }
+            writeVarInt(index);
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + bytes));
+            }
+        }
+
+        /**
+         * Get the encoded bytes: the first byte, then the string table, then the rest of the body
+         */
+        byte[] toByteArray() {
+            final Output table = new Output();
+            table.writeVarInt(strings.size());
+            for (String string : strings.keySet()) {
+                final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                table.writeVarInt(bytes.length);
+                table.ensure(bytes.length);
+                System.arraycopy(bytes, 0, table.buffer, table.position, bytes.length);
+                table.position += bytes.length;
+            }
+
+            // The version byte stays first, so the format can be identified before the table is read
+            final byte[] encoded = new byte[position + table.position];
+            encoded[0] = buffer[0];
+            System.arraycopy(table.buffer, 0, encoded, 1, table.position);
+            System.arraycopy(buffer, 1, encoded, 1 + table.position, position - 1);
+            return encoded;
+        }
+
+    }
+
+    /**
+     * 二进制输入缓冲区
+     * Binary input buffer
+     */
+    static final class Input {
+
+        private final byte[] buffer;
+        private final int version;
+        private final String[] strings;
+        private int position;
+
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+            this.version = buffer[0];
+            this.position = 1;
+
+            // Read the string table, which follows the version byte
+            final int count = readVarInt();
+            if (count < 0 || count > buffer.length) {
+                throw new IllegalArgumentException("Invalid string table size: " + count);
+            }
+            this.strings = new String[count];
+            for (int i = 0; i < count; i++) {
+                final int length = readVarInt();
+                if (length < 0 || length > buffer.length - position) {
+                    throw new IllegalArgumentException("Invalid string length: " + length);
+                }
+                strings[i] = new String(buffer, position, length, StandardCharsets.UTF_8);
+                position += length;
+            }
+        }
+
+        int getVersion() {
+            return version;
+        }
+
+        int readByte() {
+            return buffer[position++] & 0xFF;
+        }
+
+        boolean readBoolean() {
+            return readByte() != 0;
+        }
+
+        int readVarInt() {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                final int read = readByte();
+                value |= (read & 0x7F) << shift;
+                if ((read & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("VarInt is too long");
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 70; shift += 7) {
+                final int read = readByte();
+                value |= (long) (read & 0x7F) << shift;
+                if ((read & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("VarLong is too long");
+        }
+
+        long readLong() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value = (value << 8) | readByte();
+            }
+            return value;
+        }
+
+        double readDouble() {
+            return Double.longBitsToDouble(readLong());
+        }
+
+        @NotNull
+        UUID readUuid() {
+            return new UUID(readLong(), readLong());
+        }
+
+        @NotNull
+        String readString() {
+            final int index = readVarInt();
+            if (index < 0 || index >= strings.length) {
+                throw new IllegalArgumentException("Invalid string index: " + index);
+            }
+            return strings[index];
+        }
+
+    }
+
+}
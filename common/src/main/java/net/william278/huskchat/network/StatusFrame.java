@@ -0,0 +1,35 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+
+/**
+ * 一批来自同一服务器的玩家状态消息，作为一条插件消息发送
+ * A batch of player status messages from one server, sent as a single plugin message
+ *
+ * @param serverName 服务器名称 / server name
+ * @param timestamp  时间戳 / timestamp
+ * @param messages   消息 / messages
+ */
+public record StatusFrame(@NotNull String serverName, long timestamp, @NotNull List<PlayerStatusMessage> messages) {
+}
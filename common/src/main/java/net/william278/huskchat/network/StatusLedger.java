@@ -0,0 +1,145 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import net.william278.huskchat.event.PlayerStatusChangeEvent.StatusType;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 后端服务器上带版本的玩家状态，用于增量同步
+ * Versioned player statuses on a backend server, used to answer sync requests with only what changed
+ * <p>
+ * Each status is stamped with a sequence number when its value changes, and a player's version is the latest stamp
+ * of their statuses. Stamps come from one sequence for all players, so a player whose statuses were forgotten and
+ * recorded again can never be mistaken for one the proxy is up to date with. The epoch identifies this ledger, and so
+ * this run of the server; versions from another epoch mean nothing here.
+ * <p>
+ * Statuses of players who left the server are kept for a while, so going back to it only costs the changes.
+ */
+public class StatusLedger {
+
+    private final long epoch;
+    private final long retention;
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private final LinkedHashMap<UUID, Long> departures = new LinkedHashMap<>();
+    private long sequence;
+
+    /**
+     * 创建状态账本
+     * Create a status ledger
+     *
+     * @param retention 玩家离开后保留其状态的时间（毫秒）/ how long to keep the statuses of players who left (in ms)
+     */
+    public StatusLedger(long retention) {
+        this.epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        this.retention = retention;
+    }
+
+    /**
+     * 记录玩家的当前状态，并返回代理服务器尚未确认的状态
+     * Record the current statuses of a player, and answer a sync request with those the proxy has not acknowledged
+     *
+     * @param playerUuid 玩家UUID / player UUID
+     * @param current    玩家的当前状态 / current statuses of the player
+     * @param request    同步请求 / sync request
+     * @return 同步响应 / sync response
+     */
+    @NotNull
+    public synchronized StatusPayload.SyncResponse sync(@NotNull UUID playerUuid, @NotNull Map<StatusType, Object> current,
+                                                        @NotNull StatusPayload.SyncRequest request) {
+        final Entry entry = entries.computeIfAbsent(playerUuid, uuid -> new Entry());
+
+        // Statuses no longer synced are dropped, so they are stamped afresh if they are synced again
+        entry.stamps.keySet().retainAll(current.keySet());
+        current.forEach((statusType, value) -> {
+            final Stamp stamp = entry.stamps.get(statusType);
+            if (stamp == null || !stamp.value().equals(value)) {
+                entry.stamps.put(statusType, new Stamp(value, ++sequence));
+                entry.version = sequence;
+            }
+        });
+
+        final long since = request.epoch() == epoch ? request.version() : 0;
+        final Map<StatusType, Object> changed = new EnumMap<>(StatusType.class);
+        entry.stamps.forEach((statusType, stamp) -> {
+            if (stamp.version() > since) {
+                changed.put(statusType, stamp.value());
+            }
+        });
+        return new StatusPayload.SyncResponse(epoch, entry.version, changed);
+    }
+
+    /**
+     * 标记玩家已加入服务器
+     * Mark a player as having joined the server
+     *
+     * @param playerUuid 玩家UUID / player UUID
+     */
+    public synchronized void arrive(@NotNull UUID playerUuid) {
+        departures.remove(playerUuid);
+    }
+
+    /**
+     * 标记玩家已离开服务器，并清除保留时间已过的状态
+     * Mark a player as having left the server, and forget the statuses kept for longer than the retention time
+     *
+     * @param playerUuid 玩家UUID / player UUID
+     * @param now        当前时间（毫秒）/ current time (in ms)
+     */
+    public synchronized void depart(@NotNull UUID playerUuid, long now) {
+        if (entries.containsKey(playerUuid)) {
+            departures.remove(playerUuid);
+            departures.put(playerUuid, now);
+        }
+
+        // Departures are in order, so stop at the first one still within the retention time
+        final Iterator<Map.Entry<UUID, Long>> iterator = departures.entrySet().iterator();
+        while (iterator.hasNext()) {
+            final Map.Entry<UUID, Long> departure = iterator.next();
+            if (now - departure.getValue() < retention) {
+                break;
+            }
+            entries.remove(departure.getKey());
+            iterator.remove();
+        }
+    }
+
+    /**
+     * 获取账本的纪元
+     * Get the epoch of this ledger
+     *
+     * @return 纪元 / epoch
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    private static final class Entry {
+        private final Map<StatusType, Stamp> stamps = new EnumMap<>(StatusType.class);
+        private long version;
+    }
+
+    private record Stamp(@NotNull Object value, long version) {
+    }
+
+}
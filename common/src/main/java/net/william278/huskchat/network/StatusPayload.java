@@ -0,0 +1,371 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import net.william278.huskchat.event.PlayerStatusChangeEvent.StatusType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 玩家状态消息的类型化负载
+ * Typed payload of a player status message
+ */
+public sealed interface StatusPayload {
+
+    /**
+     * 转换为键值形式（用于JSON调试格式）
+     * Convert to key/value form, as used by the JSON debug format
+     *
+     * @return 数据 / data
+     */
+    @NotNull
+    Map<String, Object> toData();
+
+    /**
+     * 从键值形式读取负载
+     * Read a payload from its key/value form
+     *
+     * @param type 消息类型 / message type
+     * @param data 数据 / data
+     * @return 负载 / payload
+     */
+    @NotNull
+    static StatusPayload fromData(@NotNull PlayerStatusMessage.MessageType type, @NotNull Map<String, Object> data) {
+        return switch (type) {
+            case STATUS_UPDATE -> {
+                final StatusType statusType = StatusType.fromKey(string(data, "status_type", ""));
+                yield new StatusUpdate(statusType, normalize(statusType, data.get("value")), string(data, "reason", ""));
+            }
+            case HEALTH_CHANGE -> new HealthChange(number(data, "previous_health"), number(data, "new_health"),
+                    number(data, "max_health"), string(data, "reason", ""));
+            case LOCATION_CHANGE -> new LocationChange(
+                    new Position(string(data, "from_world", ""), number(data, "from_x"),
+                            number(data, "from_y"), number(data, "from_z")),
+                    new Position(string(data, "to_world", ""), number(data, "to_x"),
+                            number(data, "to_y"), number(data, "to_z")));
+            case PLAYER_DEATH -> new PlayerDeath(string(data, "death_message", "Player died"),
+                    data.get("killer") instanceof String killer ? killer : null);
+            case PLAYER_RESPAWN -> new PlayerRespawn(string(data, "reason", ""));
+            case SYNC_REQUEST -> new SyncRequest(longValue(data, "epoch"), longValue(data, "version"));
+            case SYNC_RESPONSE -> {
+                final Map<StatusType, Object> statuses = new EnumMap<>(StatusType.class);
+                if (data.get("statuses") instanceof Map<?, ?> values) {
+                    values.forEach((key, value) -> {
+                        final StatusType statusType = StatusType.fromKey(String.valueOf(key));
+                        if (statusType != StatusType.CUSTOM && value != null) {
+                            statuses.put(statusType, normalize(statusType, value));
+                        }
+                    });
+                }
+                yield new SyncResponse(longValue(data, "epoch"), longValue(data, "version"), statuses);
+            }
+            case SUBSCRIPTION -> new Subscription(
+                    keys(data, "message_types", PlayerStatusMessage.MessageType.class,
+                            PlayerStatusMessage.MessageType::fromKey),
+                    keys(data, "status_types", StatusType.class, StatusType::fromKey));
+            case COMMAND_EXECUTION -> Empty.INSTANCE;
+        };
+    }
+
+    /**
+     * 将值转换为状态类型对应的Java类型（例如JSON数字会被读取为Double）
+     * Convert a value to the Java type of a status type, e.g. as JSON numbers are read as doubles
+     *
+     * @param statusType 状态类型 / status type
+     * @param value      值 / value
+     * @return 转换后的值 / converted value
+     */
+    @Nullable
+    static Object normalize(@NotNull StatusType statusType, @Nullable Object value) {
+        if (!(value instanceof Number number)) {
+            return value;
+        }
+        final Class<?> valueType = statusType.getValueType();
+        if (valueType == Integer.class) {
+            return number.intValue();
+        } else if (valueType == Long.class) {
+            return number.longValue();
+        } else if (valueType == Double.class) {
+            return number.doubleValue();
+        }
+        return value;
+    }
+
+    private static double number(@NotNull Map<String, Object> data, @NotNull String key) {
+        return data.get(key) instanceof Number number ? number.doubleValue() : 0;
+    }
+
+    // Longs are written as strings, as JSON numbers are read back as doubles
+    private static long longValue(@NotNull Map<String, Object> data, @NotNull String key) {
+        try {
+            return data.get(key) instanceof String string ? Long.parseLong(string) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    @NotNull
+    private static <E extends Enum<E>> Set<E> keys(@NotNull Map<String, Object> data, @NotNull String key,
+                                                   @NotNull Class<E> type, @NotNull Function<String, E> parser) {
+        final Set<E> values = EnumSet.noneOf(type);
+        if (data.get(key) instanceof Collection<?> keys) {
+            for (Object value : keys) {
+                try {
+                    values.add(parser.apply(String.valueOf(value)));
+                } catch (IllegalArgumentException ignored) {
+                    // Skip types from newer versions
+                }
+            }
+        }
+        return values;
+    }
+
+    @NotNull
+    private static String string(@NotNull Map<String, Object> data, @NotNull String key, @NotNull String fallback) {
+        return data.get(key) instanceof String string ? string : fallback;
+    }
+
+    /**
+     * 状态更新 / Status update
+     */
+    record StatusUpdate(@NotNull StatusType statusType, @Nullable Object value,
+                        @NotNull String reason) implements StatusPayload {
+        @NotNull
+        @Override
+        public Map<String, Object> toData() {
+            final Map<String, Object> data = new HashMap<>();
+            data.put("status_type", statusType.getKey());
+            data.put("value", value);
+            data.put("reason", reason);
+            return data;
+        }
+    }
+
+    /**
+     * 生命值变化 / Health change
+     */
+    record HealthChange(double previousHealth, double newHealth, double maxHealth,
+                        @NotNull String reason) implements StatusPayload {
+        @NotNull
+        @Override
+        public Map<String, Object> toData() {
+            return Map.of(
+                    "previous_health", previousHealth,
+                    "new_health", newHealth,
+                    "max_health", maxHealth,
+                    "reason", reason
+            );
+        }
+    }
+
+    /**
+     * 位置变化 / Location change
+     */
+    record LocationChange(@NotNull Position from, @NotNull Position to) implements StatusPayload {
+        @NotNull
+        @Override
+        public Map<String, Object> toData() {
+            return Map.of(
+                    "from_world", from.world(),
+                    "from_x", from.x(),
+                    "from_y", from.y(),
+                    "from_z", from.z(),
+                    "to_world", to.world(),
+                    "to_x", to.x(),
+                    "to_y", to.y(),
+                    "to_z", to.z()
+            );
+        }
+    }
+
+    /**
+     * 世界中的坐标 / A position in a world
+     */
+    record Position(@NotNull String world, double x, double y, double z) {
+    }
+
+    /**
+     * 玩家死亡 / Player death
+     */
+    record PlayerDeath(@NotNull String deathMessage, @Nullable String killer) implements StatusPayload {
+        @NotNull
+        @Override
+        public Map<String, Object> toData() {
+            final Map<String, Object> data = new HashMap<>();
+            data.put("death_message", deathMessage);
+            if (killer != null) {
+                data.put("killer", killer);
+            }
+            return data;
+        }
+    }
+
+    /**
+     * 玩家重生 / Player respawn
+     */
+    record PlayerRespawn(@NotNull String reason) implements StatusPayload {
+        @NotNull
+        @Override
+        public Map<String, Object> toData() {
+            return Map.of("reason", reason);
+        }
+    }
+
+    /**
+     * 状态同步请求，携带代理服务器已确认的状态版本
+     * Status sync request, carrying the status version the proxy has already acknowledged
+     * <p>
+     * The backend only answers with the statuses changed since {@code version}, unless {@code epoch} is not its own
+     * (e.g. it has restarted since, or the proxy has not synced the player from it before), when it sends them all.
+     */
+    record SyncRequest(long epoch, long version) implements StatusPayload {
+
+        /**
+         * 请求所有状态 / Requests all statuses
+         */
+        public static final SyncRequest FULL = new SyncRequest(0, 0);
+
+        @NotNull
+        @Override
+        public Map<String, Object> toData() {
+            return Map.of(
+                    "epoch", Long.toString(epoch),
+                    "version", Long.toString(version)
+            );
+        }
+    }
+
+    /**
+     * 状态同步响应，仅包含自请求的版本以来变化的状态
+     * Status sync response, holding only the statuses changed since the requested version
+     * <p>
+     * {@code version} is the player's status version on the backend once these statuses are applied, and should be
+     * sent back with the next {@link SyncRequest}. If {@code epoch} differs from that of the request, the response
+     * holds every status rather than the changes.
+     */
+    record SyncResponse(long epoch, long version,
+                        @NotNull Map<StatusType, Object> statuses) implements StatusPayload {
+        @NotNull
+        @Override
+        public Map<String, Object> toData() {
+            final Map<String, Object> values = new HashMap<>();
+            statuses.forEach((statusType, value) -> values.put(statusType.getKey(), value));
+            return Map.of(
+                    "epoch", Long.toString(epoch),
+                    "version", Long.toString(version),
+                    "statuses", values
+            );
+        }
+    }
+
+    /**
+     * 代理服务器订阅的消息和状态类型；后端服务器不会发送其他内容
+     * The message and status types the proxy subscribes to; backends send nothing else
+     */
+    record Subscription(@NotNull Set<PlayerStatusMessage.MessageType> messageTypes,
+                        @NotNull Set<StatusType> statusTypes) implements StatusPayload {
+
+        /**
+         * 订阅所有内容，在收到代理服务器的订阅之前使用
+         * Subscribes to everything; used until a subscription is received from the proxy
+         */
+        public static final Subscription ALL = new Subscription(
+                EnumSet.allOf(PlayerStatusMessage.MessageType.class), EnumSet.allOf(StatusType.class));
+
+        /**
+         * 默认订阅，保持代理服务器上 PlayerInfo 读取的、由后端服务器报告的状态为最新
+         * The default subscription, keeping the statuses backends report that proxy-side PlayerInfo reads up to date
+         */
+        public static final Subscription DEFAULT = new Subscription(
+                EnumSet.of(PlayerStatusMessage.MessageType.STATUS_UPDATE, PlayerStatusMessage.MessageType.HEALTH_CHANGE,
+                        PlayerStatusMessage.MessageType.PLAYER_DEATH, PlayerStatusMessage.MessageType.PLAYER_RESPAWN,
+                        PlayerStatusMessage.MessageType.SYNC_RESPONSE),
+                EnumSet.of(StatusType.SNEAKING, StatusType.FLYING, StatusType.GAME_MODE, StatusType.FOOD_LEVEL,
+                        StatusType.EXPERIENCE_LEVEL, StatusType.HEALTH, StatusType.MAX_HEALTH, StatusType.WORLD));
+
+        public Subscription {
+            messageTypes = messageTypes.isEmpty() ? Set.of() : Collections.unmodifiableSet(EnumSet.copyOf(messageTypes));
+            statusTypes = statusTypes.isEmpty() ? Set.of() : Collections.unmodifiableSet(EnumSet.copyOf(statusTypes));
+        }
+
+        public boolean includes(@NotNull PlayerStatusMessage.MessageType messageType) {
+            return messageTypes.contains(messageType);
+        }
+
+        public boolean includes(@NotNull StatusType statusType) {
+            return statusTypes.contains(statusType);
+        }
+
+        /**
+         * 检查是否订阅了某个状态的更新
+         * Check whether updates of a status are subscribed to
+         *
+         * @param statusType 状态类型 / status type
+         * @return 是否订阅 / whether subscribed
+         */
+        public boolean includesUpdate(@NotNull StatusType statusType) {
+            return includes(PlayerStatusMessage.MessageType.STATUS_UPDATE) && includes(statusType);
+        }
+
+        /**
+         * 合并两个订阅
+         * Combine two subscriptions
+         *
+         * @param other 另一个订阅 / other subscription
+         * @return 合并后的订阅 / combined subscription
+         */
+        @NotNull
+        public Subscription with(@NotNull Subscription other) {
+            final Set<PlayerStatusMessage.MessageType> messages = EnumSet.noneOf(PlayerStatusMessage.MessageType.class);
+            messages.addAll(messageTypes);
+            messages.addAll(other.messageTypes);
+            final Set<StatusType> statuses = EnumSet.noneOf(StatusType.class);
+            statuses.addAll(statusTypes);
+            statuses.addAll(other.statusTypes);
+            return new Subscription(messages, statuses);
+        }
+
+        @NotNull
+        @Override
+        public Map<String, Object> toData() {
+            return Map.of(
+                    "message_types", messageTypes.stream().map(PlayerStatusMessage.MessageType::getKey).toList(),
+                    "status_types", statusTypes.stream().map(StatusType::getKey).toList()
+            );
+        }
+    }
+
+    /**
+     * 无负载（命令执行）/ No payload (command executions)
+     */
+    enum Empty implements StatusPayload {
+        INSTANCE;
+
+        @NotNull
+        @Override
+        public Map<String, Object> toData() {
+            return Map.of();
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import net.william278.huskchat.event.PlayerStatusChangeEvent.StatusType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 代理服务器上各后端服务器玩家状态的副本，用于增量同步
+ * The proxy's copy of the player statuses synced from each backend server, used to request only what changed
+ * <p>
+ * Statuses are kept per server, as those synced from another server in the meantime say nothing about what the
+ * player's statuses on this one were at the acknowledged version.
+ */
+public class StatusReplica {
+
+    private final Map<UUID, Map<String, Snapshot>> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * 创建玩家在某服务器上的同步请求
+     * Create the sync request for a player on a server
+     *
+     * @param playerUuid 玩家UUID / player UUID
+     * @param server     服务器名称 / server name
+     * @return 同步请求 / sync request
+     */
+    @NotNull
+    public StatusPayload.SyncRequest request(@NotNull UUID playerUuid, @NotNull String server) {
+        final Snapshot snapshot = snapshots.getOrDefault(playerUuid, Map.of()).get(server);
+        return snapshot != null ? new StatusPayload.SyncRequest(snapshot.epoch(), snapshot.version())
+                : StatusPayload.SyncRequest.FULL;
+    }
+
+    /**
+     * 应用同步响应
+     * Apply a sync response
+     *
+     * @param playerUuid 玩家UUID / player UUID
+     * @param server     服务器名称 / server name
+     * @param response   同步响应 / sync response
+     * @return 玩家在该服务器上的所有状态，如果响应已过时则为null / all statuses of the player on the server, or
+     * {@code null} if the response is out of date
+     */
+    @Nullable
+    public Map<StatusType, Object> apply(@NotNull UUID playerUuid, @NotNull String server,
+                                         @NotNull StatusPayload.SyncResponse response) {
+        final Map<String, Snapshot> servers = snapshots.computeIfAbsent(playerUuid, uuid -> new ConcurrentHashMap<>());
+        final Snapshot updated = servers.compute(server, (name, snapshot) -> {
+            if (snapshot == null || snapshot.epoch() != response.epoch()) {
+                return new Snapshot(response.epoch(), response.version(), new EnumMap<>(response.statuses()));
+            }
+            if (response.version() < snapshot.version()) {
+                return snapshot;
+            }
+            final Map<StatusType, Object> statuses = new EnumMap<>(StatusType.class);
+            statuses.putAll(snapshot.statuses());
+            statuses.putAll(response.statuses());
+            return new Snapshot(response.epoch(), response.version(), statuses);
+        });
+        return updated.version() == response.version() ? Collections.unmodifiableMap(updated.statuses()) : null;
+    }
+
+    /**
+     * 清除玩家的状态副本
+     * Forget the statuses of a player
+     *
+     * @param playerUuid 玩家UUID / player UUID
+     */
+    public void forget(@NotNull UUID playerUuid) {
+        snapshots.remove(playerUuid);
+    }
+
+    private record Snapshot(long epoch, long version, @NotNull Map<StatusType, Object> statuses) {
+    }
+
+}
@@ -0,0 +1,250 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import net.william278.huskchat.user.OnlineUser;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.logging.Level;
+
+/**
+ * 将来自后端服务器的玩家状态消息路由到对应的处理器
+ * Routes player status messages from backend servers to their handlers
+ * <p>
+ * The player of a message is looked up by UUID, and its handler by message type. Handlers of high-frequency types,
+ * such as location changes, run from a bounded queue on a separate thread; when the queue is full the oldest message
+ * is dropped, so a flood of updates from a backend cannot hold up anything else. Drops are logged when they start,
+ * at most once a minute while they continue, and when the queue has caught up.
+ */
+public class StatusRouter {
+
+    private final Function<UUID, Optional<OnlineUser>> players;
+    private final Map<PlayerStatusMessage.MessageType, BiConsumer<OnlineUser, PlayerStatusMessage>> handlers =
+            new EnumMap<>(PlayerStatusMessage.MessageType.class);
+    private final Set<PlayerStatusMessage.MessageType> queuedTypes = EnumSet.noneOf(PlayerStatusMessage.MessageType.class);
+    private final Executor executor;
+    private final int capacity;
+    private static final long REPORT_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private final BiConsumer<Level, String> log;
+    private final Deque<PlayerStatusMessage> queue = new ArrayDeque<>();
+    private boolean draining;
+    private long dropped;
+    private long reported;
+    private long lastReport;
+    private boolean dropping;
+
+    /**
+     * 创建路由器
+     * Create a router
+     *
+     * @param players  按UUID查找在线玩家 / looks up online players by UUID
+     * @param executor 处理队列消息的执行器 / executor to handle queued messages on
+     * @param capacity 队列容量 / capacity of the queue
+     * @param log      记录丢弃的消息 / logs dropped messages
+     */
+    public StatusRouter(@NotNull Function<UUID, Optional<OnlineUser>> players, @NotNull Executor executor,
+                        int capacity, @NotNull BiConsumer<Level, String> log) {
+        this.players = players;
+        this.executor = executor;
+        this.capacity = Math.max(1, capacity);
+        this.log = log;
+    }
+
+    /**
+     * 创建在独立线程上处理队列消息的路由器
+     * Create a router that handles queued messages on its own thread
+     *
+     * @param players  按UUID查找在线玩家 / looks up online players by UUID
+     * @param capacity 队列容量 / capacity of the queue
+     * @param log      记录丢弃的消息 / logs dropped messages
+     * @return 路由器 / router
+     */
+    @NotNull
+    public static StatusRouter create(@NotNull Function<UUID, Optional<OnlineUser>> players, int capacity,
+                                      @NotNull BiConsumer<Level, String> log) {
+        return new StatusRouter(players, Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "HuskChat-StatusRouter");
+            thread.setDaemon(true);
+            return thread;
+        }), capacity, log);
+    }
+
+    /**
+     * 注册在接收线程上运行的处理器
+     * Register a handler, run on the thread the message was received on
+     *
+     * @param type    消息类型 / message type
+     * @param handler 处理器 / handler
+     * @return 路由器 / this router
+     */
+    @NotNull
+    public StatusRouter handle(@NotNull PlayerStatusMessage.MessageType type,
+                               @NotNull BiConsumer<OnlineUser, PlayerStatusMessage> handler) {
+        handlers.put(type, handler);
+        queuedTypes.remove(type);
+        return this;
+    }
+
+    /**
+     * 注册高频消息的处理器，在有界队列中运行
+     * Register a handler for a high-frequency message type, run from the bounded queue
+     *
+     * @param type    消息类型 / message type
+     * @param handler 处理器 / handler
+     * @return 路由器 / this router
+     */
+    @NotNull
+    public StatusRouter handleQueued(@NotNull PlayerStatusMessage.MessageType type,
+                                     @NotNull BiConsumer<OnlineUser, PlayerStatusMessage> handler) {
+        handlers.put(type, handler);
+        queuedTypes.add(type);
+        return this;
+    }
+
+    /**
+     * 路由一条消息
+     * Route a message to its handler
+     *
+     * @param message 消息 / message
+     */
+    public void route(@NotNull PlayerStatusMessage message) {
+        if (!handlers.containsKey(message.getMessageType())) {
+            return;
+        }
+        if (!queuedTypes.contains(message.getMessageType())) {
+            dispatch(message);
+            return;
+        }
+
+        final long unreported;
+        final boolean start;
+        synchronized (queue) {
+            if (queue.size() >= capacity) {
+                queue.pollFirst();
+                dropped++;
+            }
+            queue.addLast(message);
+            unreported = takeUnreported(false);
+            start = !draining;
+            draining = true;
+        }
+        if (unreported > 0) {
+            log.accept(Level.WARNING, "The player status queue is full; dropped the " + unreported
+                    + " oldest location/health updates. Consider raising player_status.queue_size");
+        }
+        if (start) {
+            schedule();
+        }
+    }
+
+    /**
+     * 获取因队列已满而丢弃的消息数
+     * Get the number of messages dropped because the queue was full
+     *
+     * @return 丢弃的消息数 / number of dropped messages
+     */
+    public long getDropped() {
+        synchronized (queue) {
+            return dropped;
+        }
+    }
+
+    /**
+     * 停止处理队列消息的线程
+     * Stop the thread handling queued messages
+     */
+    public void close() {
+        if (executor instanceof ExecutorService service) {
+            service.shutdownNow();
+        }
+    }
+
+    // Take the drops not logged yet, if they should be logged now; must hold the queue lock
+    private long takeUnreported(boolean caughtUp) {
+        final long unreported = dropped - reported;
+        final long now = System.currentTimeMillis();
+        if (caughtUp) {
+            dropping = false;
+        } else if (unreported == 0 || dropping && now - lastReport < REPORT_INTERVAL) {
+            return 0;
+        } else {
+            dropping = true;
+        }
+        reported = dropped;
+        lastReport = now;
+        return unreported;
+    }
+
+    private void drain() {
+        boolean drained = false;
+        try {
+            while (true) {
+                final PlayerStatusMessage message;
+                final long unreported;
+                synchronized (queue) {
+                    message = queue.pollFirst();
+                    if (message == null) {
+                        draining = false;
+                        drained = true;
+                        unreported = takeUnreported(true);
+                    } else {
+                        unreported = 0;
+                    }
+                }
+                if (message == null) {
+                    if (unreported > 0) {
+                        log.accept(Level.WARNING, "The player status queue has caught up, after dropping "
+                                + unreported + " more location/health updates");
+                    }
+                    return;
+                }
+                dispatch(message);
+            }
+        } finally {
+            // If a handler threw, carry on with the rest of the queue in a new task
+            if (!drained) {
+                schedule();
+            }
+        }
+    }
+
+    private void schedule() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            // Closed; nothing is handled after shutdown
+        }
+    }
+
+    private void dispatch(@NotNull PlayerStatusMessage message) {
+        players.apply(message.getPlayerUuid()).ifPresent(
+                player -> handlers.get(message.getMessageType()).accept(player, message));
+    }
+
+}
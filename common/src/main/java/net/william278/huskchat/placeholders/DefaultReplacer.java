@@ -23,17 +23,35 @@ import net.william278.huskchat.HuskChat;
 import net.william278.huskchat.user.OnlineUser;
 import org.jetbrains.annotations.NotNull;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiFunction;
 
 public class DefaultReplacer implements PlaceholderReplacer {
 
+    private static final int TEMPLATE_CACHE_SIZE = 256;
+
     private final HuskChat plugin;
+    private final Map<String, Template> templates = Collections.synchronizedMap(
+            new LinkedHashMap<>(TEMPLATE_CACHE_SIZE, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Template> eldest) {
+                    return size() > TEMPLATE_CACHE_SIZE;
+                }
+            }
+    );
 
     public DefaultReplacer(@NotNull HuskChat plugin) {
         this.plugin = plugin;
@@ -41,7 +59,12 @@ public class DefaultReplacer implements PlaceholderReplacer {
 
     @Override
     public CompletableFuture<String> formatPlaceholders(@NotNull String message, @NotNull OnlineUser player) {
-        return Placeholder.replace(message, plugin, player);
+        Template template = templates.get(message);
+        if (template == null) {
+            template = Template.parse(message);
+            templates.put(message, template);
+        }
+        return CompletableFuture.completedFuture(template.render(plugin, player));
     }
 
     /**
@@ -57,23 +80,19 @@ public class DefaultReplacer implements PlaceholderReplacer {
                 "fullname"
         ),
         PREFIX(
-                (plugin, player) -> plugin.getDataGetter().getPlayerPrefix(player).isPresent()
-                ? plugin.getDataGetter().getPlayerPrefix(player).get() : "",
+                (plugin, player) -> plugin.getDataGetter().getPlayerPrefix(player).orElse(""),
                 "role_prefix", "roleprefix"
         ),
         SUFFIX(
-                (plugin, player) -> plugin.getDataGetter().getPlayerSuffix(player).isPresent()
-                ? plugin.getDataGetter().getPlayerSuffix(player).get() : "",
+                (plugin, player) -> plugin.getDataGetter().getPlayerSuffix(player).orElse(""),
                 "role_suffix", "rolesuffix"
         ),
         ROLE(
-                (plugin, player) -> plugin.getDataGetter().getPlayerGroupName(player).isPresent()
-                ? plugin.getDataGetter().getPlayerGroupName(player).get() : "",
+                (plugin, player) -> plugin.getDataGetter().getPlayerGroupName(player).orElse(""),
                 "role_name", "rolename"
         ),
         ROLE_DISPLAY_NAME(
-                (plugin, player) -> plugin.getDataGetter().getPlayerGroupDisplayName(player).isPresent()
-                ? plugin.getDataGetter().getPlayerGroupDisplayName(player).get() : "",
+                (plugin, player) -> plugin.getDataGetter().getPlayerGroupDisplayName(player).orElse(""),
                 "roledisplayname"
         ),
         PING(
@@ -92,35 +111,35 @@ public class DefaultReplacer implements PlaceholderReplacer {
                 "server_player_count", "serverplayercount"
         ),
         TIMESTAMP(
-                (plugin, player) -> new SimpleDateFormat("yyyy/MM/dd HH:mm:ss").format(new Date()),
+                TimeFormat.of("yyyy/MM/dd HH:mm:ss"),
                 "timestamp"
         ),
         CURRENT_TIME(
-                (plugin, player) -> new SimpleDateFormat("HH:mm:ss").format(new Date()),
+                TimeFormat.of("HH:mm:ss"),
                 "time"
         ),
         CURRENT_TIME_SHORT(
-                (plugin, player) -> new SimpleDateFormat("HH:mm").format(new Date()),
+                TimeFormat.of("HH:mm"),
                 "short_time"
         ),
         CURRENT_DATE(
-                (plugin, player) -> new SimpleDateFormat("yyyy/MM/dd").format(new Date()),
+                TimeFormat.of("yyyy/MM/dd"),
                 "date"
         ),
         CURRENT_DATE_UK(
-                (plugin, player) -> new SimpleDateFormat("dd/MM/yyyy").format(new Date()),
+                TimeFormat.of("dd/MM/yyyy"),
                 "british_date"
         ),
         CURRENT_DATE_DAY(
-                (plugin, player) -> new SimpleDateFormat("dd").format(new Date()),
+                TimeFormat.of("dd"),
                 "day"
         ),
         CURRENT_MONTH(
-                (plugin, player) -> new SimpleDateFormat("MM").format(new Date()),
+                TimeFormat.of("MM"),
                 "month"
         ),
         CURRENT_YEAR(
-                (plugin, player) -> new SimpleDateFormat("yyyy").format(new Date()),
+                TimeFormat.of("yyyy"),
                 "year"
         );
 
@@ -136,28 +155,126 @@ public class DefaultReplacer implements PlaceholderReplacer {
             this.aliases.addAll(Set.of(aliases));
         }
 
+        // Just escaping __ should suffice as the only special character allowed in Minecraft usernames is the underscore.
+        // By placing the escape character in the middle, the MineDown parser no longer sees this as a formatting code.
+        @NotNull
+        private static String escape(@NotNull String string) {
+            return string.replace("__", "_\\_");
+        }
+
+    }
+
+    /**
+     * A format string parsed into literal text and the placeholders between it
+     */
+    static final class Template {
+
+        private static final Map<String, Placeholder> ALIASES = new HashMap<>();
+
+        static {
+            for (Placeholder placeholder : Placeholder.values()) {
+                placeholder.aliases.forEach(alias -> ALIASES.put(alias, placeholder));
+            }
+        }
+
+        private final String[] literals;
+        private final Placeholder[] placeholders;
+
+        private Template(@NotNull List<String> literals, @NotNull List<Placeholder> placeholders) {
+            this.literals = literals.toArray(String[]::new);
+            this.placeholders = placeholders.toArray(Placeholder[]::new);
+        }
+
         /**
-         * Replace all placeholders in a string with their real values
+         * Parse a format string into a template
          *
-         * @param format The string to replace placeholders in
-         * @param plugin The HuskChat plugin instance
-         * @param player The player to replace placeholders for
-         * @return The string with placeholders replaced
+         * @param format the format string
+         * @return the template
          */
-        private static CompletableFuture<String> replace(@NotNull String format, @NotNull HuskChat plugin, @NotNull OnlineUser player) {
-            for (Placeholder placeholder : values()) {
-                for (String alias : placeholder.aliases) {
-                    format = format.replace("%" + alias + "%", placeholder.replacer.apply(plugin, player));
+        @NotNull
+        static Template parse(@NotNull String format) {
+            final List<String> literals = new ArrayList<>();
+            final List<Placeholder> placeholders = new ArrayList<>();
+            int literalStart = 0;
+            int start = format.indexOf('%');
+            while (start >= 0) {
+                final int end = format.indexOf('%', start + 1);
+                if (end < 0) {
+                    break;
+                }
+                final Placeholder placeholder = ALIASES.get(format.substring(start + 1, end));
+                if (placeholder == null) {
+                    // The closing % may open the next placeholder
+                    start = end;
+                    continue;
                 }
+                literals.add(format.substring(literalStart, start));
+                placeholders.add(placeholder);
+                literalStart = end + 1;
+                start = format.indexOf('%', literalStart);
             }
-            return CompletableFuture.completedFuture(escape(format));
+            literals.add(format.substring(literalStart));
+            return new Template(literals, placeholders);
         }
 
-        // Just escaping __ should suffice as the only special character allowed in Minecraft usernames is the underscore.
-        // By placing the escape character in the middle, the MineDown parser no longer sees this as a formatting code.
+        /**
+         * Render the template for a player, evaluating each placeholder it references once
+         *
+         * @param plugin the plugin instance
+         * @param player the player to render the template for
+         * @return the rendered, escaped string
+         */
         @NotNull
-        private static String escape(@NotNull String string) {
-            return string.replace("__", "_\\_");
+        String render(@NotNull HuskChat plugin, @NotNull OnlineUser player) {
+            if (placeholders.length == 0) {
+                return Placeholder.escape(literals[0]);
+            }
+            final Map<Placeholder, String> values = new EnumMap<>(Placeholder.class);
+            final StringBuilder builder = new StringBuilder(literals[0]);
+            for (int i = 0; i < placeholders.length; i++) {
+                final Placeholder placeholder = placeholders[i];
+                String value = values.get(placeholder);
+                if (value == null) {
+                    value = placeholder.replacer.apply(plugin, player);
+                    values.put(placeholder, value);
+                }
+                builder.append(value).append(literals[i + 1]);
+            }
+            return Placeholder.escape(builder.toString());
+        }
+
+    }
+
+    /**
+     * A shared date/time formatter that formats the current time at most once per second
+     */
+    private static final class TimeFormat implements BiFunction<HuskChat, OnlineUser, String> {
+
+        private final DateTimeFormatter formatter;
+        private volatile Formatted last = new Formatted(Long.MIN_VALUE, "");
+
+        private TimeFormat(@NotNull String pattern) {
+            this.formatter = DateTimeFormatter.ofPattern(pattern).withZone(ZoneId.systemDefault());
+        }
+
+        @NotNull
+        private static TimeFormat of(@NotNull String pattern) {
+            return new TimeFormat(pattern);
+        }
+
+        @Override
+        public String apply(HuskChat plugin, OnlineUser player) {
+            final long second = System.currentTimeMillis() / 1000;
+            final Formatted formatted = last;
+            if (formatted.second() == second) {
+                return formatted.value();
+            }
+            final String value = formatter.format(Instant.ofEpochSecond(second));
+            last = new Formatted(second, value);
+            return value;
+        }
+
+        private record Formatted(long second, @NotNull String value) {
         }
 
     }
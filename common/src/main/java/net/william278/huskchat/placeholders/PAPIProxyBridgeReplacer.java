@@ -20,23 +20,222 @@
 package net.william278.huskchat.placeholders;
 
 import net.william278.huskchat.HuskChat;
+import net.william278.huskchat.config.Settings;
 import net.william278.huskchat.user.OnlineUser;
 import net.william278.papiproxybridge.api.PlaceholderAPI;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+/**
+ * Resolves PlaceholderAPI placeholders on the backend server through PAPIProxyBridge.
+ * <p>
+ * Resolved values are cached per player and placeholder. Lookups for placeholders that are not cached are
+ * deduplicated while in flight, and those made for the same player within the batch window are sent to the
+ * backend together as a single request.
+ */
 public class PAPIProxyBridgeReplacer implements PlaceholderReplacer {
 
+    private static final Pattern PLACEHOLDER = Pattern.compile("%[^%\\s]+%");
+    private static final String SEPARATOR = "\u001F";
+    private static final int PRUNE_THRESHOLD = 64;
+
     private final PlaceholderAPI instance;
+    private final long cacheTime;
+    private final long batchWindow;
+    private final ScheduledExecutorService scheduler;
+    private final Map<UUID, PlayerPlaceholders> players = new ConcurrentHashMap<>();
 
     public PAPIProxyBridgeReplacer(@NotNull HuskChat plugin) {
+        final Settings.PlaceholderSettings settings = plugin.getSettings().getPlaceholder();
         this.instance = PlaceholderAPI.createInstance();
-        instance.setCacheExpiry(plugin.getSettings().getPlaceholder().getCacheTime());
+        this.cacheTime = settings.getCacheTime();
+        this.batchWindow = Math.max(0, settings.getBatchWindow());
+        instance.setCacheExpiry(cacheTime);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "HuskChat-PlaceholderBatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @Override
     public CompletableFuture<String> formatPlaceholders(@NotNull String message, @NotNull OnlineUser player) {
-        return instance.formatPlaceholders(message, player.getUuid());
+        final Set<String> placeholders = new LinkedHashSet<>();
+        final Matcher matcher = PLACEHOLDER.matcher(message);
+        while (matcher.find()) {
+            placeholders.add(matcher.group());
+        }
+        if (placeholders.isEmpty()) {
+            return CompletableFuture.completedFuture(message);
+        }
+
+        final Map<String, CompletableFuture<String>> values = players
+                .computeIfAbsent(player.getUuid(), PlayerPlaceholders::new)
+                .resolve(placeholders);
+        final CompletableFuture<?>[] pending = values.values().stream()
+                .filter(value -> !value.isDone())
+                .toArray(CompletableFuture[]::new);
+        if (pending.length == 0) {
+            return CompletableFuture.completedFuture(substitute(message, values));
+        }
+        return CompletableFuture.allOf(pending).thenApply(ignored -> substitute(message, values));
+    }
+
+    @Override
+    public void onPlayerQuit(@NotNull UUID uuid) {
+        players.remove(uuid);
     }
+
+    @Override
+    public void close() {
+        // Batches already waiting for their window are still sent
+        scheduler.shutdown();
+    }
+
+    // Replace each placeholder in the message with its resolved value
+    @NotNull
+    private static String substitute(@NotNull String message, @NotNull Map<String, CompletableFuture<String>> values) {
+        final Matcher matcher = PLACEHOLDER.matcher(message);
+        final StringBuilder builder = new StringBuilder(message.length());
+        while (matcher.find()) {
+            final CompletableFuture<String> value = values.get(matcher.group());
+            matcher.appendReplacement(builder, Matcher.quoteReplacement(
+                    value != null ? value.join() : matcher.group()
+            ));
+        }
+        matcher.appendTail(builder);
+        return builder.toString();
+    }
+
+    /**
+     * The cached and in-flight placeholder values of a player
+     */
+    private final class PlayerPlaceholders {
+
+        private final UUID uuid;
+        private final Map<String, Cached> cache = new HashMap<>();
+        private final Map<String, CompletableFuture<String>> inFlight = new HashMap<>();
+        @Nullable
+        private Map<String, CompletableFuture<String>> batch;
+
+        private PlayerPlaceholders(@NotNull UUID uuid) {
+            this.uuid = uuid;
+        }
+
+        /**
+         * Get the values of placeholders, queueing those that are neither cached nor in flight to be looked up
+         *
+         * @param placeholders the placeholders
+         * @return the value of each placeholder
+         */
+        @NotNull
+        private Map<String, CompletableFuture<String>> resolve(@NotNull Set<String> placeholders) {
+            final Map<String, CompletableFuture<String>> values = new HashMap<>();
+            boolean startBatch = false;
+            synchronized (this) {
+                final long now = System.currentTimeMillis();
+                if (cache.size() > PRUNE_THRESHOLD) {
+                    cache.values().removeIf(cached -> cached.expiresAt() <= now);
+                }
+                for (String placeholder : placeholders) {
+                    final Cached cached = cache.get(placeholder);
+                    if (cached != null && cached.expiresAt() > now) {
+                        values.put(placeholder, CompletableFuture.completedFuture(cached.value()));
+                        continue;
+                    }
+                    CompletableFuture<String> value = inFlight.get(placeholder);
+                    if (value == null) {
+                        value = new CompletableFuture<>();
+                        inFlight.put(placeholder, value);
+                        if (batch == null) {
+                            batch = new LinkedHashMap<>();
+                            startBatch = true;
+                        }
+                        batch.put(placeholder, value);
+                    }
+                    values.put(placeholder, value);
+                }
+            }
+            if (startBatch) {
+                if (batchWindow > 0) {
+                    scheduler.schedule(this::flush, batchWindow, TimeUnit.MILLISECONDS);
+                } else {
+                    flush();
+                }
+            }
+            return values;
+        }
+
+        // Send the queued placeholders to the backend as one request
+        private void flush() {
+            final List<String> placeholders;
+            synchronized (this) {
+                if (batch == null) {
+                    return;
+                }
+                placeholders = new ArrayList<>(batch.keySet());
+                batch = null;
+            }
+            if (placeholders.size() == 1) {
+                lookup(placeholders.get(0));
+                return;
+            }
+            instance.formatPlaceholders(String.join(SEPARATOR, placeholders), uuid).whenComplete((resolved, error) -> {
+                final String[] values = error == null ? resolved.split(SEPARATOR, -1) : null;
+                if (values == null || values.length != placeholders.size()) {
+                    // A value contained the separator, or the request failed; look each placeholder up on its own
+                    placeholders.forEach(this::lookup);
+                    return;
+                }
+                for (int i = 0; i < values.length; i++) {
+                    complete(placeholders.get(i), values[i], true);
+                }
+            });
+        }
+
+        // Look up a single placeholder, leaving it unreplaced if the lookup fails
+        private void lookup(@NotNull String placeholder) {
+            instance.formatPlaceholders(placeholder, uuid).whenComplete((resolved, error) -> {
+                if (error != null) {
+                    complete(placeholder, placeholder, false);
+                    return;
+                }
+                complete(placeholder, resolved, true);
+            });
+        }
+
+        private void complete(@NotNull String placeholder, @NotNull String value, boolean cacheValue) {
+            final CompletableFuture<String> future;
+            synchronized (this) {
+                if (cacheValue) {
+                    cache.put(placeholder, new Cached(value, System.currentTimeMillis() + cacheTime));
+                }
+                future = inFlight.remove(placeholder);
+            }
+            if (future != null) {
+                future.complete(value);
+            }
+        }
+
+    }
+
+    private record Cached(@NotNull String value, long expiresAt) {
+    }
+
 }
@@ -0,0 +1,100 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.placeholders;
+
+import net.william278.huskchat.config.Settings;
+import net.william278.huskchat.user.OnlineUser;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the chain of {@link PlaceholderReplacer}s over a format.
+ * <p>
+ * Replacers that complete immediately are chained on the calling thread. Once a replacer has to wait (e.g. for
+ * PAPIProxyBridge to query a backend server), the rest of the chain resumes on a small dedicated pool rather than
+ * the common fork-join pool. If that pool is saturated or has been closed, the completing thread runs the rest of
+ * the chain itself, so the returned future always completes.
+ */
+public class PlaceholderPipeline {
+
+    private final ThreadPoolExecutor executor;
+
+    public PlaceholderPipeline(@NotNull Settings.PlaceholderSettings settings) {
+        final int threads = Math.max(1, settings.getThreads());
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, settings.getQueueSize())),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "HuskChat-Placeholders-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // Unlike CallerRunsPolicy, also runs tasks once the pool is shut down, rather than discarding them
+                (runnable, pool) -> runnable.run()
+        );
+    }
+
+    /**
+     * Replace placeholders in a format for a player
+     *
+     * @param replacers the replacers to apply, in order
+     * @param player    the player to replace placeholders for
+     * @param format    the format
+     * @return a future completing with the formatted string
+     */
+    @NotNull
+    public CompletableFuture<String> replace(@NotNull List<PlaceholderReplacer> replacers,
+                                             @NotNull OnlineUser player, @NotNull String format) {
+        CompletableFuture<String> future = CompletableFuture.completedFuture(format);
+        for (PlaceholderReplacer replacer : replacers) {
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                future = apply(replacer, player, future.join());
+            } else {
+                future = future.thenComposeAsync(toFormat -> apply(replacer, player, toFormat), executor);
+            }
+        }
+        return future;
+    }
+
+    @NotNull
+    private static CompletableFuture<String> apply(@NotNull PlaceholderReplacer replacer,
+                                                   @NotNull OnlineUser player, @NotNull String format) {
+        try {
+            return replacer.formatPlaceholders(format, player);
+        } catch (Throwable e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Stop the placeholder threads once the chains already waiting on them have run
+     */
+    public void close() {
+        executor.shutdown();
+    }
+
+}
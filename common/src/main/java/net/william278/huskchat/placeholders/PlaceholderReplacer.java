@@ -22,10 +22,25 @@ package net.william278.huskchat.placeholders;
 import net.william278.huskchat.user.OnlineUser;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 public interface PlaceholderReplacer {
 
     CompletableFuture<String> formatPlaceholders(@NotNull String message, @NotNull OnlineUser player);
 
+    /**
+     * Discard any values the replacer caches for a user when they leave
+     *
+     * @param uuid the UUID of the user who left
+     */
+    default void onPlayerQuit(@NotNull UUID uuid) {
+    }
+
+    /**
+     * Release any resources held by the replacer when the plugin shuts down
+     */
+    default void close() {
+    }
+
 }
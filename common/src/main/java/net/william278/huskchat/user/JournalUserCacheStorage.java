@@ -0,0 +1,588 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.user;
+
+import net.william278.huskchat.HuskChat;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.TestOnly;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+
+/**
+ * {@link UserCacheStorage} appending every change to a compact binary journal ({@code user_cache.journal}).
+ * <p>
+ * The journal starts with a magic number and format version, followed by records made of a type byte, the
+ * player's 16-byte UUID and a type-specific payload. Loading replays the records in order; each change is a
+ * single buffered append. Once the journal grows well past the number of live spy entries, it is compacted.
+ * <p>
+ * Player channels are paged: compaction merges the channel changes in the journal into a table of fixed-width
+ * records sorted by UUID ({@code user_cache.channels}), which is binary searched when a player's channel is not
+ * in memory. Only spy settings and the channel changes since the last compaction are kept in memory.
+ */
+public class JournalUserCacheStorage implements UserCacheStorage {
+
+    static final String FILE_NAME = "user_cache.journal";
+    static final String TABLE_FILE_NAME = "user_cache.channels";
+    private static final int MAGIC = 0x48434a4c; // "HCJL"
+    private static final int TABLE_MAGIC = 0x48434354; // "HCCT"
+    private static final byte VERSION = 1;
+    private static final int TABLE_ENTRY_SIZE = 18;
+    private static final int MIN_COMPACTION_RECORDS = 4096;
+
+    // Record types
+    private static final byte PLAYER_CHANNEL = 1;
+    private static final byte LOCAL_SPY = 2;
+    private static final byte LOCAL_SPY_REMOVED = 3;
+    private static final byte SOCIAL_SPY = 4;
+    private static final byte SOCIAL_SPY_REMOVED = 5;
+
+    private static final UserCache.SpyColor[] SPY_COLORS = UserCache.SpyColor.values();
+
+    private final HuskChat plugin;
+    private final Path file;
+    private final Path tableFile;
+    private final Path yamlFile;
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    // Channels set since the table was last written
+    private final Map<UUID, String> channelChanges = new HashMap<>();
+    private final ReadWriteLock tableLock = new ReentrantReadWriteLock();
+    @Nullable
+    private ChannelTable table;
+    private UserCache.Editor cache;
+    private long records;
+    private boolean compactionRequired;
+    @Nullable
+    private Runnable afterCompactionSnapshot;
+
+    public JournalUserCacheStorage(@NotNull HuskChat plugin, @NotNull Path directory) {
+        this.plugin = plugin;
+        this.file = directory.resolve(FILE_NAME);
+        this.tableFile = directory.resolve(TABLE_FILE_NAME);
+        this.yamlFile = directory.resolve(YamlUserCacheStorage.FILE_NAME);
+    }
+
+    @NotNull
+    @Override
+    public UserCache.Editor load() throws IOException {
+        if (YamlUserCacheStorage.isNewer(yamlFile, file)) {
+            // Import from YAML on first use, or if it was switched away from
+            cache = new YamlUserCacheStorage(plugin, file.getParent()).load();
+            channelChanges.putAll(cache.playerChannels);
+            plugin.log(Level.INFO, "Imported the user cache from " + yamlFile.getFileName());
+            compactionRequired = true;
+        } else {
+            cache = new UserCache.Editor();
+            if (Files.exists(tableFile)) {
+                table = ChannelTable.open(tableFile);
+            }
+            if (Files.exists(file) && Files.size(file) > 0) {
+                replay();
+            } else {
+                compactionRequired = true;
+            }
+        }
+        cache.setStorage(this);
+        return cache;
+    }
+
+    /**
+     * Load the user cache with every player channel in memory, for exporting it to another storage.
+     * The journal is only read, and this storage can't be used afterwards
+     *
+     * @return the fully loaded user cache
+     * @throws IOException if the cache could not be read
+     */
+    @NotNull
+    UserCache.Editor loadFully() throws IOException {
+        final UserCache.Editor cache = load();
+        cache.setStorage(null);
+        if (table != null) {
+            try (ChannelTable.Cursor cursor = table.cursor()) {
+                while (cursor.next()) {
+                    cache.playerChannels.put(cursor.getUuid(), cursor.getChannel());
+                }
+            } finally {
+                table.close();
+                table = null;
+            }
+        }
+        cache.playerChannels.putAll(channelChanges);
+        return cache;
+    }
+
+    // Replay the journal into the cache, stopping at the first truncated or unreadable record
+    private void replay() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a user cache journal: " + file);
+            }
+            final byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported user cache journal version: " + version);
+            }
+            int type;
+            while ((type = in.read()) != -1) {
+                try {
+                    if (!readRecord(type, in)) {
+                        plugin.log(Level.WARNING, "Unknown record in " + file.getFileName()
+                                                  + ", ignoring the rest of the journal");
+                        compactionRequired = true;
+                        return;
+                    }
+                } catch (EOFException e) {
+                    plugin.log(Level.WARNING, "Truncated record at the end of " + file.getFileName() + ", ignoring it");
+                    compactionRequired = true;
+                    return;
+                }
+                records++;
+            }
+        }
+    }
+
+    private boolean readRecord(int type, @NotNull DataInputStream in) throws IOException {
+        final UUID uuid = new UUID(in.readLong(), in.readLong());
+        switch (type) {
+            case PLAYER_CHANNEL -> channelChanges.put(uuid, in.readUTF());
+            case LOCAL_SPY -> readColor(in.readUnsignedByte(), uuid, cache.localSpies);
+            case LOCAL_SPY_REMOVED -> cache.localSpies.remove(uuid);
+            case SOCIAL_SPY -> readColor(in.readUnsignedByte(), uuid, cache.socialSpies);
+            case SOCIAL_SPY_REMOVED -> cache.socialSpies.remove(uuid);
+            default -> {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void readColor(int ordinal, @NotNull UUID uuid, @NotNull Map<UUID, UserCache.SpyColor> spies) {
+        spies.put(uuid, ordinal < SPY_COLORS.length ? SPY_COLORS[ordinal] : UserCache.SpyColor.DEFAULT_SPY_COLOR);
+    }
+
+    @Override
+    public boolean isPaged() {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    public String lookupPlayerChannel(@NotNull UUID uuid) {
+        synchronized (this) {
+            final String changed = channelChanges.get(uuid);
+            if (changed != null) {
+                return changed;
+            }
+        }
+        tableLock.readLock().lock();
+        try {
+            return table != null ? table.lookup(uuid) : null;
+        } catch (IOException e) {
+            plugin.log(Level.WARNING, "Failed to look up the channel of " + uuid + " in " + tableFile.getFileName(), e);
+            return null;
+        } finally {
+            tableLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void setPlayerChannel(@NotNull UUID uuid, @NotNull String channelId) {
+        synchronized (this) {
+            channelChanges.put(uuid, channelId);
+            append(PLAYER_CHANNEL, uuid, channelId, null);
+        }
+    }
+
+    @Override
+    public void setLocalSpy(@NotNull UUID uuid, @Nullable UserCache.SpyColor color) {
+        append(color != null ? LOCAL_SPY : LOCAL_SPY_REMOVED, uuid, null, color);
+    }
+
+    @Override
+    public void setSocialSpy(@NotNull UUID uuid, @Nullable UserCache.SpyColor color) {
+        append(color != null ? SOCIAL_SPY : SOCIAL_SPY_REMOVED, uuid, null, color);
+    }
+
+    private synchronized void append(byte type, @NotNull UUID uuid, @Nullable String channelId,
+                                     @Nullable UserCache.SpyColor color) {
+        try {
+            writeRecord(pendingOut, type, uuid, channelId, color);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        records++;
+    }
+
+    private static void writeRecord(@NotNull DataOutputStream out, byte type, @NotNull UUID uuid,
+                                    @Nullable String channelId, @Nullable UserCache.SpyColor color) throws IOException {
+        out.writeByte(type);
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+        if (channelId != null) {
+            out.writeUTF(channelId);
+        } else if (color != null) {
+            out.writeByte(color.ordinal());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (cache == null) {
+            return;
+        }
+        final byte[] appended;
+        synchronized (this) {
+            final long spies = cache.localSpies.size() + cache.socialSpies.size();
+            if (compactionRequired || records > Math.max(MIN_COMPACTION_RECORDS, spies * 2L)) {
+                appended = null;
+            } else if (pending.size() > 0) {
+                appended = pending.toByteArray();
+                pending.reset();
+            } else {
+                return;
+            }
+        }
+        if (appended == null) {
+            compact();
+            return;
+        }
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            out.write(appended);
+        } catch (IOException e) {
+            // The cache in memory is authoritative; rewrite the whole journal on the next flush
+            synchronized (this) {
+                compactionRequired = true;
+            }
+            throw e;
+        }
+    }
+
+    // Merge channel changes into the table, and rewrite the journal with a single record per spy
+    private void compact() throws IOException {
+        final UserCache snapshot;
+        final TreeMap<UUID, String> changes;
+        synchronized (cache) {
+            synchronized (this) {
+                snapshot = cache.snapshot();
+                changes = new TreeMap<>(channelChanges);
+                pending.reset();
+                records = 0;
+                compactionRequired = true;
+            }
+        }
+        if (afterCompactionSnapshot != null) {
+            afterCompactionSnapshot.run();
+        }
+
+        final Path tableTemp = tableFile.resolveSibling(tableFile.getFileName() + ".tmp");
+        if (!changes.isEmpty()) {
+            writeTable(tableTemp, changes);
+        }
+
+        long written = 0;
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            for (Map.Entry<UUID, UserCache.SpyColor> entry : snapshot.localSpies.entrySet()) {
+                writeRecord(out, LOCAL_SPY, entry.getKey(), null, entry.getValue());
+                written++;
+            }
+            for (Map.Entry<UUID, UserCache.SpyColor> entry : snapshot.socialSpies.entrySet()) {
+                writeRecord(out, SOCIAL_SPY, entry.getKey(), null, entry.getValue());
+                written++;
+            }
+        }
+
+        // Replace the table before the journal; replaying the old journal over the new table is harmless
+        if (!changes.isEmpty()) {
+            tableLock.writeLock().lock();
+            try {
+                if (table != null) {
+                    table.close();
+                    table = null;
+                }
+                YamlUserCacheStorage.move(tableTemp, tableFile);
+            } finally {
+                // Reopen the table, even if the new one couldn't be moved into place
+                try {
+                    table = Files.exists(tableFile) ? ChannelTable.open(tableFile) : null;
+                } finally {
+                    tableLock.writeLock().unlock();
+                }
+            }
+        }
+        YamlUserCacheStorage.move(temp, file);
+
+        synchronized (this) {
+            // Changes made since the snapshot are still pending, and will be appended on the next flush;
+            // only drop the entries that weren't changed again in the meantime
+            changes.forEach((uuid, channel) -> channelChanges.remove(uuid, channel));
+            records += written;
+            compactionRequired = false;
+        }
+    }
+
+    // Write a new table merging the current table with the (sorted) channel changes
+    private void writeTable(@NotNull Path temp, @NotNull SortedMap<UUID, String> changes) throws IOException {
+        final ChannelTable current = table;
+        final Map<String, Integer> channelIds = new LinkedHashMap<>();
+        if (current != null) {
+            for (String channel : current.channels) {
+                channelIds.putIfAbsent(channel, channelIds.size());
+            }
+        }
+        changes.values().forEach(channel -> channelIds.putIfAbsent(channel, channelIds.size()));
+        if (channelIds.size() > 0xffff) {
+            throw new IOException("Too many distinct channel IDs to write the channel table");
+        }
+
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        final DataOutputStream headerOut = new DataOutputStream(header);
+        headerOut.writeShort(channelIds.size());
+        for (String channel : channelIds.keySet()) {
+            headerOut.writeUTF(channel);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)));
+             ChannelTable.Cursor cursor = current != null ? current.cursor() : null) {
+            out.writeInt(TABLE_MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(header.size());
+            header.writeTo(out);
+
+            // Merge the sorted table entries with the sorted changes, preferring the changes
+            final Iterator<Map.Entry<UUID, String>> changed = changes.entrySet().iterator();
+            Map.Entry<UUID, String> change = changed.hasNext() ? changed.next() : null;
+            boolean hasEntry = cursor != null && cursor.next();
+            while (hasEntry || change != null) {
+                final int compare = !hasEntry ? 1 : change == null ? -1 : cursor.getUuid().compareTo(change.getKey());
+                if (compare < 0) {
+                    writeTableEntry(out, cursor.getUuid(), channelIds.get(cursor.getChannel()));
+                    hasEntry = cursor.next();
+                    continue;
+                }
+                writeTableEntry(out, change.getKey(), channelIds.get(change.getValue()));
+                if (compare == 0) {
+                    hasEntry = cursor.next();
+                }
+                change = changed.hasNext() ? changed.next() : null;
+            }
+        }
+    }
+
+    private static void writeTableEntry(@NotNull DataOutputStream out, @NotNull UUID uuid, int channelId)
+            throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+        out.writeShort(channelId);
+    }
+
+    @Override
+    public void moveAside() throws IOException {
+        tableLock.writeLock().lock();
+        try {
+            if (table != null) {
+                table.close();
+                table = null;
+            }
+        } finally {
+            tableLock.writeLock().unlock();
+        }
+        if (YamlUserCacheStorage.isNewer(yamlFile, file)) {
+            YamlUserCacheStorage.moveAside(yamlFile);
+        }
+        YamlUserCacheStorage.moveAside(file);
+        YamlUserCacheStorage.moveAside(tableFile);
+        cache = null;
+    }
+
+    /**
+     * Run a task during compaction, once the changes to write have been taken
+     *
+     * @param task the task to run
+     */
+    @TestOnly
+    void afterCompactionSnapshot(@Nullable Runnable task) {
+        this.afterCompactionSnapshot = task;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            tableLock.writeLock().lock();
+            try {
+                if (table != null) {
+                    table.close();
+                    table = null;
+                }
+            } finally {
+                tableLock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Read-only view of the channel table: a header listing the channel IDs, followed by fixed-width
+     * {@code (UUID, channel index)} records sorted by UUID. Entries referencing an unknown channel index are skipped
+     */
+    private static final class ChannelTable implements Closeable {
+
+        private final Path file;
+        private final String[] channels;
+        private final long dataOffset;
+        private final long entries;
+        private final FileChannel channel;
+
+        private ChannelTable(@NotNull Path file, @NotNull String[] channels, long dataOffset,
+                             @NotNull FileChannel channel) throws IOException {
+            this.file = file;
+            this.channels = channels;
+            this.dataOffset = dataOffset;
+            this.entries = (channel.size() - dataOffset) / TABLE_ENTRY_SIZE;
+            this.channel = channel;
+        }
+
+        @NotNull
+        private static ChannelTable open(@NotNull Path file) throws IOException {
+            final String[] channels;
+            final long dataOffset;
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != TABLE_MAGIC) {
+                    throw new IOException("Not a user cache channel table: " + file);
+                }
+                final byte version = in.readByte();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported user cache channel table version: " + version);
+                }
+                dataOffset = 9L + in.readInt();
+                channels = new String[in.readUnsignedShort()];
+                for (int i = 0; i < channels.length; i++) {
+                    channels[i] = in.readUTF();
+                }
+            }
+            return new ChannelTable(file, channels, dataOffset, FileChannel.open(file, StandardOpenOption.READ));
+        }
+
+        // Binary search the table for a player's channel
+        @Nullable
+        private String lookup(@NotNull UUID uuid) throws IOException {
+            final ByteBuffer buffer = ByteBuffer.allocate(TABLE_ENTRY_SIZE);
+            long low = 0;
+            long high = entries - 1;
+            while (low <= high) {
+                final long middle = (low + high) >>> 1;
+                buffer.clear();
+                long position = dataOffset + middle * TABLE_ENTRY_SIZE;
+                while (buffer.hasRemaining()) {
+                    final int read = channel.read(buffer, position);
+                    if (read < 0) {
+                        throw new EOFException("Unexpected end of " + file.getFileName());
+                    }
+                    position += read;
+                }
+                final int compare = new UUID(buffer.getLong(0), buffer.getLong(8)).compareTo(uuid);
+                if (compare < 0) {
+                    low = middle + 1;
+                } else if (compare > 0) {
+                    high = middle - 1;
+                } else {
+                    final int index = buffer.getShort(16) & 0xffff;
+                    return index < channels.length ? channels[index] : null;
+                }
+            }
+            return null;
+        }
+
+        // Open a cursor reading every entry in order
+        @NotNull
+        private Cursor cursor() throws IOException {
+            final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+            try {
+                in.skipNBytes(dataOffset);
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+            return new Cursor(in);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private final class Cursor implements Closeable {
+
+            private final DataInputStream in;
+            private long read;
+            private UUID uuid;
+            private String channel;
+
+            private Cursor(@NotNull DataInputStream in) {
+                this.in = in;
+            }
+
+            // Advance to the next entry, returning false at the end of the table
+            private boolean next() throws IOException {
+                while (read < entries) {
+                    read++;
+                    uuid = new UUID(in.readLong(), in.readLong());
+                    final int index = in.readUnsignedShort();
+                    if (index < channels.length) {
+                        channel = channels[index];
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @NotNull
+            private UUID getUuid() {
+                return uuid;
+            }
+
+            @NotNull
+            private String getChannel() {
+                return channel;
+            }
+
+            @Override
+            public void close() throws IOException {
+                in.close();
+            }
+
+        }
+
+    }
+
+}
@@ -28,6 +28,7 @@ import org.jetbrains.annotations.Nullable;
 import org.jetbrains.annotations.TestOnly;
 
 import java.util.UUID;
+import java.util.function.BooleanSupplier;
 
 /**
  * Abstract cross-platform Player object
@@ -35,6 +36,7 @@ import java.util.UUID;
 public abstract class OnlineUser extends User implements PlayerInfo {
 
     protected HuskChat plugin;
+    private final PermissionCache permissionCache = new PermissionCache();
 
     protected OnlineUser(@NotNull String username, @NotNull UUID uuid, @NotNull HuskChat plugin) {
         super(username, uuid);
@@ -89,4 +91,26 @@ public abstract class OnlineUser extends User implements PlayerInfo {
     public void sendMessage(@NotNull MineDown mineDown) {
         sendMessage(mineDown.toComponent());
     }
+
+    /**
+     * Check one of HuskChat's permission nodes through the user's permission cache
+     *
+     * @param node           the permission node
+     * @param allowByDefault whether the permission is granted if it is not set
+     * @param lookup         looks the permission up from the platform's permission provider
+     * @return {@code true} if the permission is granted
+     */
+    protected final boolean checkCachedPermission(@Nullable String node, boolean allowByDefault,
+                                                  @NotNull BooleanSupplier lookup) {
+        final long cacheTime = plugin != null ? plugin.getSettings().getPermissionCacheTime() : 0;
+        return permissionCache.check(node, allowByDefault, cacheTime, lookup);
+    }
+
+    /**
+     * Forget the user's cached permission decisions, so they are looked up again
+     */
+    public void invalidatePermissions() {
+        permissionCache.invalidate();
+    }
+
 }
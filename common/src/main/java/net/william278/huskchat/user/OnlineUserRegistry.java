@@ -0,0 +1,351 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.user;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Registry holding the canonical {@link OnlineUser} instance of each online player, keyed by UUID.
+ * <p>
+ * Platforms populate the registry when a player logs in and evict them on disconnect, so that every lookup
+ * for the same player hands back the same instance (and the same status cache) for the whole session.
+ * It also indexes which backend server each player is on, updated as players connect to and switch servers.
+ * <p>
+ * Each registered player is given a dense integer slot, which is reused once they disconnect. Message audiences
+ * are resolved as {@link BitSet}s of slots: the online or server members, intersected with the players who hold
+ * a permission and with the servers a channel is restricted on removed.
+ */
+public class OnlineUserRegistry {
+
+    private final Map<UUID, OnlineUser> users = new ConcurrentHashMap<>();
+    private final Map<UUID, String> servers = new ConcurrentHashMap<>();
+    private final Map<String, List<OnlineUser>> members = new ConcurrentHashMap<>();
+
+    // Slot state, guarded by the lock
+    private final Object lock = new Object();
+    private final Map<UUID, Integer> slots = new HashMap<>();
+    private final BitSet online = new BitSet();
+    private final Map<String, BitSet> serverSlots = new HashMap<>();
+    private OnlineUser[] slotUsers = new OnlineUser[64];
+
+    /**
+     * Get the registered user for a platform player, registering a new one if there is none yet,
+     * or if the registered instance no longer wraps the current platform player (e.g. after a re-login)
+     *
+     * @param uuid      the UUID of the player
+     * @param type      the platform {@link OnlineUser} type
+     * @param isCurrent returns {@code true} if a registered instance still wraps the current platform player
+     * @param factory   creates a new instance for the player
+     * @param <T>       the platform {@link OnlineUser} type
+     * @return the canonical instance for the player
+     */
+    @NotNull
+    public <T extends OnlineUser> T adapt(@NotNull UUID uuid, @NotNull Class<T> type,
+                                          @NotNull Predicate<T> isCurrent, @NotNull Supplier<T> factory) {
+        final Optional<T> registered = find(uuid, type, isCurrent);
+        if (registered.isPresent()) {
+            return registered.get();
+        }
+        final T adapted = type.cast(users.compute(uuid, (key, existing) ->
+                type.isInstance(existing) && isCurrent.test(type.cast(existing)) ? existing : factory.get()));
+        synchronized (lock) {
+            assignSlot(adapted);
+        }
+        return adapted;
+    }
+
+    /**
+     * Get the registered user for a platform player without registering one, for use once the player
+     * is no longer connected (e.g. while handling their disconnect)
+     *
+     * @param uuid      the UUID of the player
+     * @param type      the platform {@link OnlineUser} type
+     * @param isCurrent returns {@code true} if a registered instance still wraps the current platform player
+     * @param <T>       the platform {@link OnlineUser} type
+     * @return the registered instance, if there is a current one
+     */
+    public <T extends OnlineUser> Optional<T> find(@NotNull UUID uuid, @NotNull Class<T> type,
+                                                   @NotNull Predicate<T> isCurrent) {
+        final OnlineUser registered = users.get(uuid);
+        if (type.isInstance(registered) && isCurrent.test(type.cast(registered))) {
+            return Optional.of(type.cast(registered));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Get the registered user with the given UUID
+     *
+     * @param uuid the UUID of the player
+     * @return the registered user, if they are online
+     */
+    public Optional<OnlineUser> get(@NotNull UUID uuid) {
+        return Optional.ofNullable(users.get(uuid));
+    }
+
+    /**
+     * Evict a user from the registry when they disconnect, releasing their slot.
+     * Ignored if another instance has been registered for the player since, e.g. after a fast reconnect
+     *
+     * @param user the user
+     */
+    public void unregister(@NotNull OnlineUser user) {
+        final UUID uuid = user.getUuid();
+        synchronized (lock) {
+            if (!users.remove(uuid, user)) {
+                return;
+            }
+            final String previous = servers.remove(uuid);
+            if (previous != null) {
+                removeMember(previous, uuid);
+            }
+            final Integer slot = slots.remove(uuid);
+            if (slot != null) {
+                online.clear(slot);
+                slotUsers[slot] = null;
+            }
+        }
+    }
+
+    /**
+     * Record the backend server a user has connected to, moving them out of their previous server.
+     * Ignored if the user is not registered, e.g. for a server connection handled after they disconnected
+     *
+     * @param user   the user
+     * @param server the name of the server they are now connected to
+     */
+    public void setServer(@NotNull OnlineUser user, @NotNull String server) {
+        synchronized (lock) {
+            if (!users.containsKey(user.getUuid())) {
+                return;
+            }
+            final int slot = assignSlot(user);
+            final String previous = servers.put(user.getUuid(), server);
+            if (previous != null) {
+                removeMember(previous, user.getUuid());
+            }
+            final List<OnlineUser> current = members.getOrDefault(server, List.of());
+            final List<OnlineUser> updated = new ArrayList<>(current.size() + 1);
+            for (OnlineUser member : current) {
+                if (!member.getUuid().equals(user.getUuid())) {
+                    updated.add(member);
+                }
+            }
+            updated.add(user);
+            members.put(server, Collections.unmodifiableList(updated));
+            serverSlots.computeIfAbsent(server, key -> new BitSet()).set(slot);
+        }
+    }
+
+    /**
+     * Get the backend server a user is connected to
+     *
+     * @param uuid the UUID of the player
+     * @return the name of their server, if it has been recorded
+     */
+    public Optional<String> getServer(@NotNull UUID uuid) {
+        return Optional.ofNullable(servers.get(uuid));
+    }
+
+    /**
+     * Get the users connected to a backend server
+     *
+     * @param server the name of the server
+     * @return an immutable snapshot of the users on the server
+     */
+    @NotNull
+    public List<OnlineUser> getServerMembers(@NotNull String server) {
+        return members.getOrDefault(server, List.of());
+    }
+
+    /**
+     * Get the slot of a registered user
+     *
+     * @param uuid the UUID of the player
+     * @return the slot of the player, or {@code -1} if they are not registered
+     */
+    public int getSlot(@NotNull UUID uuid) {
+        synchronized (lock) {
+            return slots.getOrDefault(uuid, -1);
+        }
+    }
+
+    /**
+     * Get the slots of all registered users
+     *
+     * @return a new bit set of slots, which the caller may modify
+     */
+    @NotNull
+    public BitSet getOnlineSlots() {
+        synchronized (lock) {
+            return (BitSet) online.clone();
+        }
+    }
+
+    /**
+     * Get the slots of the users connected to a backend server
+     *
+     * @param server the name of the server
+     * @return a new bit set of slots, which the caller may modify
+     */
+    @NotNull
+    public BitSet getServerSlots(@NotNull String server) {
+        synchronized (lock) {
+            final BitSet members = serverSlots.get(server);
+            return members != null ? (BitSet) members.clone() : new BitSet();
+        }
+    }
+
+    /**
+     * Remove the slots of users on servers matching a predicate from an audience
+     *
+     * @param audience the audience to modify
+     * @param excluded returns {@code true} for the names of servers to exclude
+     */
+    public void removeServers(@NotNull BitSet audience, @NotNull Predicate<String> excluded) {
+        synchronized (lock) {
+            serverSlots.forEach((server, members) -> {
+                if (excluded.test(server)) {
+                    audience.andNot(members);
+                }
+            });
+        }
+    }
+
+    /**
+     * Retain only the slots of users who have a permission in an audience, as checked by
+     * {@link OnlineUser#hasPermission(String, boolean)} without a default, which uses each user's permission cache
+     *
+     * @param audience   the audience to modify
+     * @param permission the permission node
+     */
+    public void retainPermitted(@NotNull BitSet audience, @NotNull String permission) {
+        final OnlineUser[] checked;
+        synchronized (lock) {
+            checked = Arrays.copyOf(slotUsers, slotUsers.length);
+        }
+
+        // Look permissions up outside the lock, as permission providers may be slow
+        for (int slot = audience.nextSetBit(0); slot >= 0; slot = audience.nextSetBit(slot + 1)) {
+            final OnlineUser user = slot < checked.length ? checked[slot] : null;
+            if (user == null || !user.hasPermission(permission, false)) {
+                audience.clear(slot);
+            }
+        }
+    }
+
+    /**
+     * Forget the cached permission results of a user, so they are looked up again
+     *
+     * @param uuid the UUID of the player
+     */
+    public void invalidatePermissions(@NotNull UUID uuid) {
+        get(uuid).ifPresent(OnlineUser::invalidatePermissions);
+    }
+
+    /**
+     * Get the users in an audience
+     *
+     * @param audience the slots of the users
+     * @return the users, in slot order
+     */
+    @NotNull
+    public List<OnlineUser> getUsers(@NotNull BitSet audience) {
+        final List<OnlineUser> result = new ArrayList<>(audience.cardinality());
+        synchronized (lock) {
+            for (int slot = audience.nextSetBit(0); slot >= 0; slot = audience.nextSetBit(slot + 1)) {
+                if (slot < slotUsers.length && slotUsers[slot] != null) {
+                    result.add(slotUsers[slot]);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get all registered users
+     *
+     * @return an unmodifiable view of all registered users
+     */
+    @NotNull
+    public Collection<OnlineUser> getAll() {
+        return Collections.unmodifiableCollection(users.values());
+    }
+
+    // Give a user the lowest free slot, or point their existing slot at their current instance
+    private int assignSlot(@NotNull OnlineUser user) {
+        final Integer existing = slots.get(user.getUuid());
+        if (existing != null) {
+            slotUsers[existing] = user;
+            return existing;
+        }
+        final int slot = online.nextClearBit(0);
+        if (slot >= slotUsers.length) {
+            slotUsers = Arrays.copyOf(slotUsers, Math.max(slotUsers.length * 2, slot + 1));
+        }
+        slots.put(user.getUuid(), slot);
+        slotUsers[slot] = user;
+        online.set(slot);
+        return slot;
+    }
+
+    // Replace the member list of a server with a copy that excludes the given player
+    private void removeMember(@NotNull String server, @NotNull UUID uuid) {
+        final Integer slot = slots.get(uuid);
+        final BitSet serverMembers = serverSlots.get(server);
+        if (slot != null && serverMembers != null) {
+            serverMembers.clear(slot);
+            if (serverMembers.isEmpty()) {
+                serverSlots.remove(server);
+            }
+        }
+
+        final List<OnlineUser> current = members.get(server);
+        if (current == null) {
+            return;
+        }
+        final List<OnlineUser> updated = new ArrayList<>(current.size());
+        for (OnlineUser member : current) {
+            if (!member.getUuid().equals(uuid)) {
+                updated.add(member);
+            }
+        }
+        if (updated.isEmpty()) {
+            members.remove(server);
+        } else {
+            members.put(server, Collections.unmodifiableList(updated));
+        }
+    }
+
+}
@@ -0,0 +1,79 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.user;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Per-user cache of permission decisions for HuskChat's own permission nodes.
+ * <p>
+ * Decisions are kept until they expire or the cache is invalidated, e.g. when LuckPerms recalculates
+ * the user's permissions. Nodes belonging to other plugins are always looked up.
+ */
+public class PermissionCache {
+
+    private static final String CACHED_PREFIX = "huskchat.";
+
+    private final Map<String, Decision> allowedByDefault = new ConcurrentHashMap<>();
+    private final Map<String, Decision> deniedByDefault = new ConcurrentHashMap<>();
+
+    /**
+     * Check a permission, using a cached decision if there is a current one
+     *
+     * @param node           the permission node
+     * @param allowByDefault whether the permission is granted if it is not set
+     * @param cacheTime      how long to cache the decision for, in milliseconds; {@code 0} to disable caching
+     * @param lookup         looks the permission up from the permission provider
+     * @return {@code true} if the permission is granted
+     */
+    public boolean check(@Nullable String node, boolean allowByDefault, long cacheTime,
+                         @NotNull BooleanSupplier lookup) {
+        if (node == null || cacheTime <= 0
+                || !node.regionMatches(true, 0, CACHED_PREFIX, 0, CACHED_PREFIX.length())) {
+            return lookup.getAsBoolean();
+        }
+        final Map<String, Decision> decisions = allowByDefault ? allowedByDefault : deniedByDefault;
+        final long now = System.currentTimeMillis();
+        final Decision cached = decisions.get(node);
+        if (cached != null && cached.expiresAt() > now) {
+            return cached.granted();
+        }
+        final boolean granted = lookup.getAsBoolean();
+        decisions.put(node, new Decision(granted, now + cacheTime));
+        return granted;
+    }
+
+    /**
+     * Forget all cached decisions
+     */
+    public void invalidate() {
+        allowedByDefault.clear();
+        deniedByDefault.clear();
+    }
+
+    private record Decision(boolean granted, long expiresAt) {
+    }
+
+}
@@ -24,8 +24,10 @@ import lombok.NoArgsConstructor;
 import net.william278.huskchat.HuskChat;
 import net.william278.huskchat.channel.Channel;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.function.Predicate;
 
 /**
  * A cache for persisting player data
@@ -36,6 +38,15 @@ public class UserCache {
 
     // Non-persisted data
     protected transient final Map<UUID, Set<UUID>> lastMessagePlayers = new HashMap<>();
+    protected transient final Map<UUID, Long> offlineSince = new HashMap<>();
+    @Nullable
+    protected transient UserCacheStorage storage;
+
+    // Immutable copies of the spy maps, read without locking when fanning out messages and reset on edit
+    @Nullable
+    protected transient volatile Map<UUID, SpyColor> localSpyIndex;
+    @Nullable
+    protected transient volatile Map<UUID, SpyColor> socialSpyIndex;
 
     // Persisted data
     protected LinkedHashMap<UUID, String> playerChannels = new LinkedHashMap<>();
@@ -44,7 +55,24 @@ public class UserCache {
 
     @NotNull
     public Optional<String> getPlayerChannel(@NotNull UUID uuid) {
-        return Optional.ofNullable(playerChannels.get(uuid));
+        final UserCacheStorage storage;
+        synchronized (this) {
+            final String channel = playerChannels.get(uuid);
+            if (channel != null || this.storage == null || !this.storage.isPaged()) {
+                return Optional.ofNullable(channel);
+            }
+            storage = this.storage;
+        }
+
+        // Page the channel in from storage; it is evicted again once the player has been offline for a while
+        final String channel = storage.lookupPlayerChannel(uuid);
+        if (channel == null) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            final String current = playerChannels.putIfAbsent(uuid, channel);
+            return Optional.of(current != null ? current : channel);
+        }
     }
 
     public Optional<Set<UUID>> getLastMessengers(@NotNull UUID uuid) {
@@ -54,50 +82,125 @@ public class UserCache {
         return Optional.empty();
     }
 
+    /**
+     * Get the online social spies who should see a private message, grouped by their spy color
+     *
+     * @param recipients the recipients of the message, who are not sent a spy copy
+     * @param plugin     the plugin instance
+     * @return the spies to notify, grouped by color
+     */
     @NotNull
-    public Map<OnlineUser, SpyColor> getSocialSpies(@NotNull List<OnlineUser> recipients, @NotNull HuskChat plugin) {
-        final Map<OnlineUser, SpyColor> receivers = new LinkedHashMap<>();
-
-        calculateSpies:
-        for (UUID player : socialSpies.keySet()) {
-            final SpyColor color = socialSpies.get(player);
-            final Optional<OnlineUser> spy = plugin.getPlayer(player);
-            if (spy.isEmpty()) {
-                continue;
-            }
-            for (OnlineUser messageRecipient : recipients) {
-                if (player.equals(messageRecipient.getUuid())) {
-                    continue calculateSpies;
-                }
-            }
-            receivers.put(spy.get(), color);
+    public Map<SpyColor, List<OnlineUser>> getSocialSpies(@NotNull List<OnlineUser> recipients, @NotNull HuskChat plugin) {
+        final Map<UUID, SpyColor> spies = getSpyIndex(false);
+        if (spies.isEmpty()) {
+            return new EnumMap<>(SpyColor.class);
         }
-        return receivers;
+        final Set<UUID> excluded = new HashSet<>();
+        for (OnlineUser recipient : recipients) {
+            excluded.add(recipient.getUuid());
+        }
+        return resolveSpies(spies, spy -> !excluded.contains(spy.getUuid()), plugin);
     }
 
     public boolean isSocialSpying(@NotNull OnlineUser player) {
-        return socialSpies.containsKey(player.getUuid());
+        return getSpyIndex(false).containsKey(player.getUuid());
     }
 
+    /**
+     * Get the online local spies who should see a message sent on a server, grouped by their spy color
+     *
+     * @param server the server the message was sent on; spies on this server are not sent a spy copy
+     * @param plugin the plugin instance
+     * @return the spies to notify, grouped by color
+     */
     @NotNull
-    public Map<OnlineUser, SpyColor> getLocalSpies(@NotNull String server, @NotNull HuskChat plugin) {
-        final Map<OnlineUser, SpyColor> receivers = new LinkedHashMap<>();
-        for (UUID player : localSpies.keySet()) {
-            final SpyColor color = localSpies.get(player);
-            final Optional<OnlineUser> spy = plugin.getPlayer(player);
-            if (spy.isEmpty()) {
-                continue;
-            }
-            if (spy.get().getServerName().equals(server)) {
-                continue;
-            }
-            receivers.put(spy.get(), color);
+    public Map<SpyColor, List<OnlineUser>> getLocalSpies(@NotNull String server, @NotNull HuskChat plugin) {
+        final Map<UUID, SpyColor> spies = getSpyIndex(true);
+        if (spies.isEmpty()) {
+            return new EnumMap<>(SpyColor.class);
         }
+        return resolveSpies(spies, spy -> !spy.getServerName().equals(server), plugin);
+    }
+
+    @NotNull
+    private Map<SpyColor, List<OnlineUser>> resolveSpies(@NotNull Map<UUID, SpyColor> spies,
+                                                         @NotNull Predicate<OnlineUser> filter,
+                                                         @NotNull HuskChat plugin) {
+        final Map<SpyColor, List<OnlineUser>> receivers = new EnumMap<>(SpyColor.class);
+        spies.forEach((uuid, color) -> plugin.getPlayer(uuid).filter(filter).ifPresent(
+                spy -> receivers.computeIfAbsent(color, key -> new ArrayList<>()).add(spy)
+        ));
         return receivers;
     }
 
+    // Get an immutable view of the local or social spies, rebuilding it if the spies were edited
+    @NotNull
+    private Map<UUID, SpyColor> getSpyIndex(boolean local) {
+        Map<UUID, SpyColor> index = local ? localSpyIndex : socialSpyIndex;
+        if (index == null) {
+            synchronized (this) {
+                if (local) {
+                    index = localSpyIndex = localSpyIndex != null ? localSpyIndex : Map.copyOf(localSpies);
+                } else {
+                    index = socialSpyIndex = socialSpyIndex != null ? socialSpyIndex : Map.copyOf(socialSpies);
+                }
+            }
+        }
+        return index;
+    }
+
     public boolean isLocalSpying(OnlineUser player) {
-        return localSpies.containsKey(player.getUuid());
+        return getSpyIndex(true).containsKey(player.getUuid());
+    }
+
+    /**
+     * Evict the channels of players who have been offline for longer than the grace period, if the
+     * storage pages them in on demand
+     *
+     * @param gracePeriod how long to keep the channels of offline players, in milliseconds
+     * @param isOnline    returns {@code true} if the player with the given UUID is online
+     */
+    public void evictOffline(long gracePeriod, @NotNull Predicate<UUID> isOnline) {
+        final List<UUID> loaded;
+        synchronized (this) {
+            if (storage == null || !storage.isPaged()) {
+                return;
+            }
+            loaded = new ArrayList<>(playerChannels.keySet());
+        }
+        final Set<UUID> offline = new HashSet<>();
+        for (UUID uuid : loaded) {
+            if (!isOnline.test(uuid)) {
+                offline.add(uuid);
+            }
+        }
+
+        final long now = System.currentTimeMillis();
+        synchronized (this) {
+            offlineSince.keySet().retainAll(offline);
+            for (UUID uuid : offline) {
+                if (now - offlineSince.computeIfAbsent(uuid, key -> now) >= gracePeriod) {
+                    playerChannels.remove(uuid);
+                    offlineSince.remove(uuid);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get a copy of the persisted data, for writing to disk while the cache keeps being edited
+     *
+     * @return a detached copy of the persisted data
+     */
+    @NotNull
+    public UserCache snapshot() {
+        final UserCache snapshot = new UserCache();
+        synchronized (this) {
+            snapshot.playerChannels = new LinkedHashMap<>(playerChannels);
+            snapshot.localSpies = new LinkedHashMap<>(localSpies);
+            snapshot.socialSpies = new LinkedHashMap<>(socialSpies);
+        }
+        return snapshot;
     }
 
     /**
@@ -105,6 +208,10 @@ public class UserCache {
      */
     public static class Editor extends UserCache {
 
+        void setStorage(@Nullable UserCacheStorage storage) {
+            this.storage = storage;
+        }
+
         public void setLastMessenger(@NotNull UUID playerToSet, @NotNull List<OnlineUser> lastMessengers) {
             final HashSet<UUID> uuidPlayers = new HashSet<>();
             for (OnlineUser player : lastMessengers) {
@@ -114,7 +221,12 @@ public class UserCache {
         }
 
         public void setPlayerChannel(@NotNull UUID uuid, @NotNull String channelId) {
-            playerChannels.put(uuid, channelId);
+            if (channelId.equals(playerChannels.put(uuid, channelId))) {
+                return;
+            }
+            if (storage != null) {
+                storage.setPlayerChannel(uuid, channelId);
+            }
         }
 
         /**
@@ -140,27 +252,51 @@ public class UserCache {
         }
 
         public void setSocialSpy(@NotNull User user) {
-            socialSpies.put(user.getUuid(), SpyColor.DEFAULT_SPY_COLOR);
+            setSocialSpy(user, SpyColor.DEFAULT_SPY_COLOR);
         }
 
         public void setSocialSpy(@NotNull User user, @NotNull SpyColor spyColor) {
-            socialSpies.put(user.getUuid(), spyColor);
+            if (socialSpies.put(user.getUuid(), spyColor) == spyColor) {
+                return;
+            }
+            socialSpyIndex = null;
+            if (storage != null) {
+                storage.setSocialSpy(user.getUuid(), spyColor);
+            }
         }
 
         public void removeSocialSpy(@NotNull User user) {
-            socialSpies.remove(user.getUuid());
+            if (socialSpies.remove(user.getUuid()) == null) {
+                return;
+            }
+            socialSpyIndex = null;
+            if (storage != null) {
+                storage.setSocialSpy(user.getUuid(), null);
+            }
         }
 
         public void setLocalSpy(@NotNull User user) {
-            localSpies.put(user.getUuid(), SpyColor.DEFAULT_SPY_COLOR);
+            setLocalSpy(user, SpyColor.DEFAULT_SPY_COLOR);
         }
 
         public void setLocalSpy(@NotNull User user, @NotNull SpyColor spyColor) {
-            localSpies.put(user.getUuid(), spyColor);
+            if (localSpies.put(user.getUuid(), spyColor) == spyColor) {
+                return;
+            }
+            localSpyIndex = null;
+            if (storage != null) {
+                storage.setLocalSpy(user.getUuid(), spyColor);
+            }
         }
 
         public void removeLocalSpy(@NotNull User user) {
-            localSpies.remove(user.getUuid());
+            if (localSpies.remove(user.getUuid()) == null) {
+                return;
+            }
+            localSpyIndex = null;
+            if (storage != null) {
+                storage.setLocalSpy(user.getUuid(), null);
+            }
         }
     }
 
@@ -0,0 +1,131 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.user;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Storage backend persisting the {@link UserCache}.
+ * <p>
+ * The storage loads the cache once, then is notified of every persisted change made through the
+ * {@link UserCache.Editor}. Change notifications are made while holding the cache lock and must not block;
+ * writing to disk happens in {@link #flush()}, which the {@link UserCacheWriter} calls periodically.
+ */
+public interface UserCacheStorage extends AutoCloseable {
+
+    /**
+     * Load the user cache from storage, binding the returned editor to this storage
+     *
+     * @return the loaded user cache
+     * @throws IOException if the cache could not be read
+     */
+    @NotNull
+    UserCache.Editor load() throws IOException;
+
+    /**
+     * Whether player channels are paged in from storage on demand rather than all kept in memory.
+     * If so, the cache looks up channels it doesn't hold with {@link #lookupPlayerChannel(UUID)},
+     * and evicts those of players who have been offline for a while
+     *
+     * @return {@code true} if player channels are paged
+     */
+    default boolean isPaged() {
+        return false;
+    }
+
+    /**
+     * Look up a player's channel in storage
+     *
+     * @param uuid the player's UUID
+     * @return the ID of the player's channel, or {@code null} if they don't have one
+     */
+    @Nullable
+    default String lookupPlayerChannel(@NotNull UUID uuid) {
+        return null;
+    }
+
+    /**
+     * Called when a player's channel is set
+     *
+     * @param uuid      the player's UUID
+     * @param channelId the ID of the channel
+     */
+    void setPlayerChannel(@NotNull UUID uuid, @NotNull String channelId);
+
+    /**
+     * Called when a player's local spy color is set or removed
+     *
+     * @param uuid  the player's UUID
+     * @param color the spy color, or {@code null} if they stopped local spying
+     */
+    void setLocalSpy(@NotNull UUID uuid, @Nullable UserCache.SpyColor color);
+
+    /**
+     * Called when a player's social spy color is set or removed
+     *
+     * @param uuid  the player's UUID
+     * @param color the spy color, or {@code null} if they stopped social spying
+     */
+    void setSocialSpy(@NotNull UUID uuid, @Nullable UserCache.SpyColor color);
+
+    /**
+     * Write pending changes to disk
+     *
+     * @throws IOException if the changes could not be written
+     */
+    void flush() throws IOException;
+
+    /**
+     * Move the files {@link #load()} reads aside, for when they couldn't be read, so the cache can start over empty.
+     * The storage can't be used afterwards
+     *
+     * @throws IOException if the files could not be moved
+     */
+    void moveAside() throws IOException;
+
+    /**
+     * Write pending changes to disk and release any resources
+     *
+     * @throws IOException if the changes could not be written
+     */
+    @Override
+    default void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Types of user cache storage
+     */
+    enum Type {
+        /**
+         * The whole cache is stored as a single YAML document ({@code user_cache.yml})
+         */
+        YAML,
+        /**
+         * Changes are appended to a compact binary journal ({@code user_cache.journal}), which is compacted periodically
+         */
+        JOURNAL
+    }
+
+}
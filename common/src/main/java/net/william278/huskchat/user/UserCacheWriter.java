@@ -0,0 +1,97 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.user;
+
+import net.william278.huskchat.HuskChat;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Write-behind persistence for the {@link UserCache}.
+ * <p>
+ * Edits are only recorded by the {@link UserCacheStorage}; a background thread coalesces them and flushes the
+ * storage on an interval, so callers never block on disk I/O. If the storage pages player channels, the same
+ * thread evicts those of players who have been offline for longer than the grace period.
+ */
+public class UserCacheWriter implements AutoCloseable {
+
+    private final HuskChat plugin;
+    private final UserCache cache;
+    private final UserCacheStorage storage;
+    private final long evictionGracePeriod;
+    private final ScheduledExecutorService executor;
+
+    public UserCacheWriter(@NotNull HuskChat plugin, @NotNull UserCache cache, @NotNull UserCacheStorage storage,
+                           long saveIntervalSeconds, long evictionGracePeriodSeconds) {
+        this.plugin = plugin;
+        this.cache = cache;
+        this.storage = storage;
+        this.evictionGracePeriod = TimeUnit.SECONDS.toMillis(evictionGracePeriodSeconds);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "HuskChat-UserCacheWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final long interval = Math.max(1, saveIntervalSeconds);
+        this.executor.scheduleWithFixedDelay(() -> {
+            flush();
+            cache.evictOffline(evictionGracePeriod, uuid -> plugin.getUserRegistry().get(uuid).isPresent());
+        }, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Write pending changes to disk
+     */
+    public synchronized void flush() {
+        try {
+            storage.flush();
+        } catch (Throwable e) {
+            plugin.log(Level.SEVERE, "Failed to save the user cache", e);
+        }
+    }
+
+    /**
+     * Stop the background writer and flush any pending changes
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                storage.close();
+            } catch (Throwable e) {
+                plugin.log(Level.SEVERE, "Failed to save the user cache", e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,146 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.user;
+
+import de.exlll.configlib.YamlConfigurations;
+import net.william278.huskchat.HuskChat;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+
+/**
+ * {@link UserCacheStorage} writing the whole cache as a single YAML document ({@code user_cache.yml}).
+ * <p>
+ * Changes only mark the cache as dirty; {@link #flush()} writes a snapshot to a temporary file and moves it
+ * over the old one, so a crash mid-write never leaves a truncated cache behind.
+ */
+public class YamlUserCacheStorage implements UserCacheStorage {
+
+    static final String FILE_NAME = "user_cache.yml";
+
+    private final HuskChat plugin;
+    private final Path file;
+    private final Path journalFile;
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private UserCache.Editor cache;
+
+    public YamlUserCacheStorage(@NotNull HuskChat plugin, @NotNull Path directory) {
+        this.plugin = plugin;
+        this.file = directory.resolve(FILE_NAME);
+        this.journalFile = directory.resolve(JournalUserCacheStorage.FILE_NAME);
+    }
+
+    @NotNull
+    @Override
+    public UserCache.Editor load() throws IOException {
+        if (isNewer(journalFile, file)) {
+            // Import from the journal if it was switched away from
+            cache = new JournalUserCacheStorage(plugin, file.getParent()).loadFully();
+            plugin.log(Level.INFO, "Imported the user cache from " + journalFile.getFileName());
+            dirty.set(true);
+        } else if (Files.exists(file)) {
+            cache = YamlConfigurations.load(file, UserCache.Editor.class);
+        } else {
+            cache = new UserCache.Editor();
+        }
+        cache.setStorage(this);
+        return cache;
+    }
+
+    @Override
+    public void moveAside() throws IOException {
+        if (isNewer(journalFile, file)) {
+            moveAside(journalFile);
+            moveAside(file.resolveSibling(JournalUserCacheStorage.TABLE_FILE_NAME));
+        }
+        moveAside(file);
+    }
+
+    @Override
+    public void setPlayerChannel(@NotNull UUID uuid, @NotNull String channelId) {
+        dirty.set(true);
+    }
+
+    @Override
+    public void setLocalSpy(@NotNull UUID uuid, @Nullable UserCache.SpyColor color) {
+        dirty.set(true);
+    }
+
+    @Override
+    public void setSocialSpy(@NotNull UUID uuid, @Nullable UserCache.SpyColor color) {
+        dirty.set(true);
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        if (cache == null || !dirty.getAndSet(false)) {
+            return;
+        }
+        try {
+            export(cache.snapshot(), file);
+        } catch (IOException | RuntimeException e) {
+            dirty.set(true);
+            throw e;
+        }
+    }
+
+    /**
+     * Write a user cache to a YAML file, atomically replacing the existing file
+     *
+     * @param cache the cache to write
+     * @param file  the file to write to
+     * @throws IOException if the file could not be written
+     */
+    public static void export(@NotNull UserCache cache, @NotNull Path file) throws IOException {
+        final Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        YamlConfigurations.save(temp, UserCache.class, cache);
+        move(temp, file);
+    }
+
+    static void move(@NotNull Path source, @NotNull Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Rename a file that couldn't be read, keeping it for inspection
+    static void moveAside(@NotNull Path file) throws IOException {
+        if (Files.exists(file)) {
+            move(file, file.resolveSibling(file.getFileName() + ".corrupt-" + System.currentTimeMillis()));
+        }
+    }
+
+    // Returns true if the first file exists and was modified after the second (or the second doesn't exist)
+    static boolean isNewer(@NotNull Path file, @NotNull Path other) throws IOException {
+        return Files.exists(file) && (!Files.exists(other)
+                || Files.getLastModifiedTime(file).compareTo(Files.getLastModifiedTime(other)) > 0);
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.filter;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+public class EmojiReplacerTests {
+
+    EmojiReplacer replacer = new EmojiReplacer(new EmojiReplacer.EmojiReplacerSettings(false, Map.of(
+            ":)", "☺",
+            ":smile:", "☺",
+            ":fire:", "🔥",
+            "<3", "❤"
+    )));
+    EmojiReplacer caseInsensitiveReplacer = new EmojiReplacer(new EmojiReplacer.EmojiReplacerSettings(true, Map.of(
+            ":fire:", "🔥",
+            ":Heart:", "❤"
+    )));
+
+    @Test
+    public void testReplaceWords() {
+        Assertions.assertEquals("hello ☺ this is 🔥 ❤", replacer.replace("hello :) this is :fire: <3"));
+    }
+
+    @Test
+    public void testOnlyReplaceWholeWords() {
+        Assertions.assertEquals("hello:) :fire:s <3<3", replacer.replace("hello:) :fire:s <3<3"));
+    }
+
+    @Test
+    public void testNoEmoji() {
+        final String message = "This is a test sentence";
+        Assertions.assertEquals(message, replacer.replace(message));
+    }
+
+    @Test
+    public void testPreserveSpacing() {
+        Assertions.assertEquals(" ☺  ☺ ", replacer.replace(" :)  :smile: "));
+    }
+
+    @Test
+    public void testCaseSensitive() {
+        Assertions.assertEquals(":FIRE: 🔥", replacer.replace(":FIRE: :fire:"));
+    }
+
+    @Test
+    public void testCaseInsensitive() {
+        Assertions.assertEquals("🔥 🔥 ❤", caseInsensitiveReplacer.replace(":FIRE: :Fire: :HEART:"));
+    }
+
+    @Test
+    public void testReplaceBuffer() {
+        final StringBuilder message = new StringBuilder("I :fire: it");
+        replacer.replace(message);
+        Assertions.assertEquals("I 🔥 it", message.toString());
+    }
+
+}
@@ -0,0 +1,93 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.filter;
+
+import net.william278.huskchat.user.TestOnlineUser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+public class RegexFilterTests {
+
+    RegexFilter filter = new RegexFilter(new RegexFilter.RegexFilterSettings(
+            List.of("(?i)hello.*", "bad(word)?", "(\\w)\\1{5,}"), List.of("forbidden"), 50
+    ));
+
+    @Test
+    public void testAllowedMessage() {
+        Assertions.assertTrue(filter.isAllowed(new TestOnlineUser(), "This is a test sentence"));
+    }
+
+    @Test
+    public void testMatchesWholeMessage() {
+        Assertions.assertFalse(filter.isAllowed(new TestOnlineUser(), "HELLO there"));
+        Assertions.assertFalse(filter.isAllowed(new TestOnlineUser(), "badword"));
+        Assertions.assertTrue(filter.isAllowed(new TestOnlineUser(), "this is badword"));
+    }
+
+    @Test
+    public void testCombinedPatternsKeepFlagsScoped() {
+        Assertions.assertTrue(filter.isAllowed(new TestOnlineUser(), "BADWORD"));
+    }
+
+    @Test
+    public void testBackReferencePattern() {
+        Assertions.assertFalse(filter.isAllowed(new TestOnlineUser(), "aaaaaaa"));
+        Assertions.assertTrue(filter.isAllowed(new TestOnlineUser(), "abcdefg"));
+    }
+
+    @Test
+    public void testFindPattern() {
+        Assertions.assertFalse(filter.isAllowed(new TestOnlineUser(), "this word is forbidden here"));
+    }
+
+    @Test
+    public void testSkipsInvalidPatterns() {
+        final RegexFilter partial = new RegexFilter(new RegexFilter.RegexFilterSettings(
+                List.of("bad(word", "badword"), List.of("[forbidden"), 50
+        ));
+        Assertions.assertFalse(partial.isAllowed(new TestOnlineUser(), "badword"));
+        Assertions.assertTrue(partial.isAllowed(new TestOnlineUser(), "[forbidden"));
+    }
+
+    @Test
+    public void testTimeBudget() {
+        final RegexFilter catastrophic = new RegexFilter(new RegexFilter.RegexFilterSettings(
+                List.of(), List.of("(x+x+)+y"), 50
+        ));
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> catastrophic
+                .isAllowed(new TestOnlineUser(), "x".repeat(64)));
+    }
+
+    @Test
+    public void testTimeBudgetOfCombinedPatterns() {
+        final RegexFilter catastrophic = new RegexFilter(new RegexFilter.RegexFilterSettings(
+                List.of(), List.of("forbidden", "(x+x+)+y"), 50
+        ));
+        Assertions.assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            Assertions.assertFalse(catastrophic.isAllowed(new TestOnlineUser(), "x".repeat(64)));
+            Assertions.assertFalse(catastrophic.isAllowed(new TestOnlineUser(), "forbidden " + "x".repeat(64)));
+            Assertions.assertTrue(catastrophic.isAllowed(new TestOnlineUser(), "allowed"));
+        });
+    }
+
+}
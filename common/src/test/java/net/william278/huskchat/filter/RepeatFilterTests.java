@@ -0,0 +1,62 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.filter;
+
+import net.william278.huskchat.user.OnlineUser;
+import net.william278.huskchat.user.TestOnlineUser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class RepeatFilterTests {
+
+    RepeatFilter repeatFilter = new RepeatFilter(new RepeatFilter.RepeatFilterSettings(3));
+
+    @Test
+    public void testBlocksRepeatedMessage() {
+        final OnlineUser player = new TestOnlineUser();
+        Assertions.assertTrue(repeatFilter.isAllowed(player, "Hello there"));
+        Assertions.assertFalse(repeatFilter.isAllowed(player, "Hello there"));
+    }
+
+    @Test
+    public void testIgnoresCase() {
+        final OnlineUser player = new TestOnlineUser();
+        Assertions.assertTrue(repeatFilter.isAllowed(player, "Hello there"));
+        Assertions.assertFalse(repeatFilter.isAllowed(player, "HELLO THERE"));
+    }
+
+    @Test
+    public void testForgetsOldMessages() {
+        final OnlineUser player = new TestOnlineUser();
+        Assertions.assertTrue(repeatFilter.isAllowed(player, "one"));
+        Assertions.assertTrue(repeatFilter.isAllowed(player, "two"));
+        Assertions.assertTrue(repeatFilter.isAllowed(player, "three"));
+        Assertions.assertTrue(repeatFilter.isAllowed(player, "four"));
+        Assertions.assertTrue(repeatFilter.isAllowed(player, "one"));
+        Assertions.assertFalse(repeatFilter.isAllowed(player, "four"));
+    }
+
+    @Test
+    public void testMessagesArePerPlayer() {
+        Assertions.assertTrue(repeatFilter.isAllowed(new TestOnlineUser(), "Hello there"));
+        Assertions.assertTrue(repeatFilter.isAllowed(new TestOnlineUser(), "Hello there"));
+    }
+
+}
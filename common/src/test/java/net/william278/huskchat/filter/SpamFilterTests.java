@@ -0,0 +1,67 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.filter;
+
+import net.william278.huskchat.user.OnlineUser;
+import net.william278.huskchat.user.TestOnlineUser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SpamFilterTests {
+
+    SpamFilter spamFilter = new SpamFilter(new SpamFilter.SpamFilterSettings(60, 3));
+
+    @Test
+    public void testAllowsMessagesWithinLimit() {
+        final OnlineUser player = new TestOnlineUser();
+        Assertions.assertTrue(spamFilter.isAllowed(player, "one"));
+        Assertions.assertTrue(spamFilter.isAllowed(player, "two"));
+        Assertions.assertTrue(spamFilter.isAllowed(player, "three"));
+    }
+
+    @Test
+    public void testBlocksMessagesOverLimit() {
+        final OnlineUser player = new TestOnlineUser();
+        for (int i = 0; i < 3; i++) {
+            spamFilter.isAllowed(player, "message");
+        }
+        Assertions.assertFalse(spamFilter.isAllowed(player, "message"));
+    }
+
+    @Test
+    public void testLimitIsPerPlayer() {
+        final OnlineUser spammer = new TestOnlineUser();
+        for (int i = 0; i < 4; i++) {
+            spamFilter.isAllowed(spammer, "message");
+        }
+        Assertions.assertTrue(spamFilter.isAllowed(new TestOnlineUser(), "message"));
+    }
+
+    @Test
+    public void testQuitResetsState() {
+        final OnlineUser player = new TestOnlineUser();
+        for (int i = 0; i < 4; i++) {
+            spamFilter.isAllowed(player, "message");
+        }
+        spamFilter.onPlayerQuit(player.getUuid());
+        Assertions.assertTrue(spamFilter.isAllowed(player, "message"));
+    }
+
+}
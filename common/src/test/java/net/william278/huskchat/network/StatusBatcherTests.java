@@ -0,0 +1,106 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import net.william278.huskchat.event.PlayerStatusChangeEvent.StatusType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+public class StatusBatcherTests {
+
+    private static final UUID PLAYER = UUID.randomUUID();
+
+    private PlayerStatusMessage move(double fromX, double toX) {
+        return PlayerStatusMessage.createLocationChange(PLAYER, "William278", "lobby",
+                new StatusPayload.Position("world", fromX, 64, 0), new StatusPayload.Position("world", toX, 64, 0));
+    }
+
+    private PlayerStatusMessage sneak(boolean sneaking) {
+        return PlayerStatusMessage.createStatusUpdate(PLAYER, "William278", "lobby",
+                StatusType.SNEAKING, sneaking, "Sneak toggled");
+    }
+
+    @Test
+    public void testCoalescesChangesIntoOneFrame() {
+        final StatusBatcher batcher = new StatusBatcher(Map.of());
+        batcher.record(move(0, 1));
+        batcher.record(move(1, 2));
+        batcher.record(PlayerStatusMessage.createHealthChange(PLAYER, "William278", "lobby", 20, 18, 20, "FALL"));
+        batcher.record(PlayerStatusMessage.createHealthChange(PLAYER, "William278", "lobby", 18, 15, 20, "FIRE"));
+
+        final StatusFrame frame = batcher.drain("lobby", 0);
+        Assertions.assertNotNull(frame);
+        Assertions.assertEquals(2, frame.messages().size());
+        Assertions.assertTrue(frame.messages().stream().anyMatch(message -> message.getPayload().equals(
+                new StatusPayload.HealthChange(20, 15, 20, "FIRE"))));
+        Assertions.assertTrue(frame.messages().stream().anyMatch(message -> message.getPayload().equals(
+                move(0, 2).getPayload())));
+        Assertions.assertNull(batcher.drain("lobby", 1));
+    }
+
+    @Test
+    public void testDropsUnchangedStatuses() {
+        final StatusBatcher batcher = new StatusBatcher(Map.of());
+        batcher.record(sneak(true));
+        Assertions.assertNotNull(batcher.drain("lobby", 0));
+
+        // Toggled back and forth within a frame, so there is nothing new to send
+        batcher.record(sneak(false));
+        batcher.record(sneak(true));
+        Assertions.assertNull(batcher.drain("lobby", 1));
+
+        batcher.record(sneak(false));
+        final StatusFrame frame = batcher.drain("lobby", 2);
+        Assertions.assertNotNull(frame);
+        Assertions.assertEquals(List.of(sneak(false).getPayload()),
+                frame.messages().stream().map(PlayerStatusMessage::getPayload).toList());
+    }
+
+    @Test
+    public void testRateLimitsLocationUpdates() {
+        final StatusBatcher batcher = new StatusBatcher(Map.of(PlayerStatusMessage.MessageType.LOCATION_CHANGE, 500L));
+        batcher.record(move(0, 1));
+        Assertions.assertNotNull(batcher.drain("lobby", 0));
+
+        batcher.record(move(1, 2));
+        Assertions.assertNull(batcher.drain("lobby", 100));
+        batcher.record(move(2, 3));
+        final StatusFrame frame = batcher.drain("lobby", 500);
+        Assertions.assertNotNull(frame);
+        Assertions.assertEquals(move(1, 3).getPayload(), frame.messages().get(0).getPayload());
+    }
+
+    @Test
+    public void testKeepsEventsInOrder() {
+        final StatusBatcher batcher = new StatusBatcher(Map.of());
+        batcher.record(PlayerStatusMessage.createPlayerDeath(PLAYER, "William278", "lobby", "died", null));
+        batcher.record(PlayerStatusMessage.createPlayerRespawn(PLAYER, "William278", "lobby", "respawned"));
+        final StatusFrame frame = batcher.drain("lobby", 0);
+        Assertions.assertNotNull(frame);
+        Assertions.assertEquals(List.of(PlayerStatusMessage.MessageType.PLAYER_DEATH,
+                        PlayerStatusMessage.MessageType.PLAYER_RESPAWN),
+                frame.messages().stream().map(PlayerStatusMessage::getMessageType).toList());
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import com.google.gson.Gson;
+import net.william278.huskchat.event.PlayerStatusChangeEvent.StatusType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+public class StatusCodecTests {
+
+    private static final Gson GSON = new Gson();
+    private static final UUID PLAYER = UUID.randomUUID();
+
+    private void assertRoundTrip(PlayerStatusMessage message, boolean json) {
+        final StatusCodec codec = new StatusCodec(GSON, json);
+        final PlayerStatusMessage decoded = codec.decode(codec.encode(message));
+        Assertions.assertEquals(message.getMessageType(), decoded.getMessageType());
+        Assertions.assertEquals(message.getPlayerUuid(), decoded.getPlayerUuid());
+        Assertions.assertEquals(message.getPlayerName(), decoded.getPlayerName());
+        Assertions.assertEquals(message.getServerName(), decoded.getServerName());
+        Assertions.assertEquals(message.getTimestamp(), decoded.getTimestamp());
+        Assertions.assertEquals(message.getPayload(), decoded.getPayload());
+    }
+
+    @Test
+    public void testRoundTripsMessages() {
+        final Map<StatusType, Object> statuses = new EnumMap<>(StatusType.class);
+        statuses.put(StatusType.HEALTH, 17.5);
+        statuses.put(StatusType.FOOD_LEVEL, 20);
+        statuses.put(StatusType.GAME_MODE, "SURVIVAL");
+        statuses.put(StatusType.FLYING, false);
+        statuses.put(StatusType.TOTAL_ONLINE_TIME, 123456789L);
+
+        for (boolean json : new boolean[]{false, true}) {
+            assertRoundTrip(PlayerStatusMessage.createStatusUpdate(PLAYER, "William278", "lobby",
+                    StatusType.SNEAKING, true, "Sneak toggled"), json);
+            assertRoundTrip(PlayerStatusMessage.createHealthChange(PLAYER, "William278", "lobby",
+                    20, 14.5, 20, "FALL"), json);
+            assertRoundTrip(PlayerStatusMessage.createLocationChange(PLAYER, "William278", "lobby",
+                    new StatusPayload.Position("world", 1.5, 64, -3),
+                    new StatusPayload.Position("world", 2.5, 64, -3)), json);
+            assertRoundTrip(PlayerStatusMessage.createPlayerDeath(PLAYER, "William278", "lobby",
+                    "William278 fell", null), json);
+            assertRoundTrip(PlayerStatusMessage.createSyncRequest(PLAYER, "William278", "lobby"), json);
+            assertRoundTrip(PlayerStatusMessage.createSyncRequest(PLAYER, "William278", "lobby",
+                    new StatusPayload.SyncRequest(Long.MAX_VALUE - 1, 42)), json);
+            assertRoundTrip(PlayerStatusMessage.createSyncResponse(PLAYER, "William278", "lobby",
+                    new StatusPayload.SyncResponse(Long.MAX_VALUE - 1, 42, statuses)), json);
+            assertRoundTrip(PlayerStatusMessage.createSubscription(PLAYER, "William278", "lobby",
+                    new StatusPayload.Subscription(Set.of(PlayerStatusMessage.MessageType.PLAYER_DEATH),
+                            Set.of(StatusType.HEALTH, StatusType.TOTAL_ONLINE_TIME))), json);
+        }
+    }
+
+    @Test
+    public void testRoundTripsFrames() {
+        final UUID other = UUID.randomUUID();
+        final StatusFrame frame = new StatusFrame("lobby", 1000, List.of(
+                new PlayerStatusMessage(PlayerStatusMessage.MessageType.STATUS_UPDATE, PLAYER, "William278",
+                        "lobby", 1000, new StatusPayload.StatusUpdate(StatusType.FLYING, true, "Flight toggled")),
+                new PlayerStatusMessage(PlayerStatusMessage.MessageType.PLAYER_RESPAWN, other, "Steve",
+                        "lobby", 1000, new StatusPayload.PlayerRespawn("Player respawned")),
+                new PlayerStatusMessage(PlayerStatusMessage.MessageType.HEALTH_CHANGE, PLAYER, "William278",
+                        "lobby", 1000, new StatusPayload.HealthChange(20, 19, 20, "FALL"))
+        ));
+        for (boolean json : new boolean[]{false, true}) {
+            final StatusCodec codec = new StatusCodec(GSON, json);
+            final List<PlayerStatusMessage> decoded = codec.decodeAll(codec.encode(frame));
+            Assertions.assertEquals(3, decoded.size());
+            for (PlayerStatusMessage message : frame.messages()) {
+                Assertions.assertTrue(decoded.stream().anyMatch(d -> d.getPlayerUuid().equals(message.getPlayerUuid())
+                        && d.getPlayerName().equals(message.getPlayerName())
+                        && d.getServerName().equals("lobby") && d.getTimestamp() == 1000
+                        && d.getPayload().equals(message.getPayload())));
+            }
+        }
+    }
+
+    @Test
+    public void testInternsRepeatedStrings() {
+        final PlayerStatusMessage message = PlayerStatusMessage.createLocationChange(PLAYER, "William278", "lobby",
+                new StatusPayload.Position("world_the_end", 0, 0, 0),
+                new StatusPayload.Position("world_the_end", 1, 0, 0));
+        final byte[] encoded = new StatusCodec(GSON, false).encode(message);
+        final String text = new String(encoded, StandardCharsets.ISO_8859_1);
+        Assertions.assertEquals(text.indexOf("world_the_end"), text.lastIndexOf("world_the_end"));
+        Assertions.assertTrue(encoded.length < new StatusCodec(GSON, true).encode(message).length / 2);
+    }
+
+    @Test
+    public void testRejectsMalformedMessages() {
+        final StatusCodec codec = new StatusCodec(GSON, false);
+        final byte[] encoded = codec.encode(PlayerStatusMessage.createSyncRequest(PLAYER, "William278", "lobby"));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> codec.decode(Arrays.copyOf(encoded, encoded.length - 3)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> codec.decode(new byte[0]));
+    }
+
+}
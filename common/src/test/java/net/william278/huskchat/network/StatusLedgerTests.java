@@ -0,0 +1,125 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import net.william278.huskchat.event.PlayerStatusChangeEvent.StatusType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+
+public class StatusLedgerTests {
+
+    private static final UUID PLAYER = UUID.randomUUID();
+
+    private Map<StatusType, Object> statuses(double health, String gameMode) {
+        final Map<StatusType, Object> statuses = new EnumMap<>(StatusType.class);
+        statuses.put(StatusType.HEALTH, health);
+        statuses.put(StatusType.GAME_MODE, gameMode);
+        return statuses;
+    }
+
+    @Test
+    public void testSendsOnlyChangesSinceAcknowledgedVersion() {
+        final StatusLedger ledger = new StatusLedger(60000);
+        final StatusReplica replica = new StatusReplica();
+
+        final StatusPayload.SyncResponse first = ledger.sync(PLAYER, statuses(20, "SURVIVAL"),
+                replica.request(PLAYER, "lobby"));
+        Assertions.assertEquals(2, first.statuses().size());
+        Assertions.assertEquals(statuses(20, "SURVIVAL"), replica.apply(PLAYER, "lobby", first));
+
+        final StatusPayload.SyncResponse second = ledger.sync(PLAYER, statuses(15, "SURVIVAL"),
+                replica.request(PLAYER, "lobby"));
+        Assertions.assertEquals(Map.of(StatusType.HEALTH, 15.0), second.statuses());
+        Assertions.assertEquals(statuses(15, "SURVIVAL"), replica.apply(PLAYER, "lobby", second));
+
+        final StatusPayload.SyncResponse third = ledger.sync(PLAYER, statuses(15, "SURVIVAL"),
+                replica.request(PLAYER, "lobby"));
+        Assertions.assertTrue(third.statuses().isEmpty());
+        Assertions.assertEquals(second.version(), third.version());
+    }
+
+    @Test
+    public void testResendsChangesOfLostResponses() {
+        final StatusLedger ledger = new StatusLedger(60000);
+        final StatusReplica replica = new StatusReplica();
+        replica.apply(PLAYER, "lobby", ledger.sync(PLAYER, statuses(20, "SURVIVAL"), replica.request(PLAYER, "lobby")));
+
+        // The response to this request never arrives
+        ledger.sync(PLAYER, statuses(15, "SURVIVAL"), replica.request(PLAYER, "lobby"));
+
+        final StatusPayload.SyncResponse response = ledger.sync(PLAYER, statuses(15, "CREATIVE"),
+                replica.request(PLAYER, "lobby"));
+        Assertions.assertEquals(statuses(15, "CREATIVE"), response.statuses());
+    }
+
+    @Test
+    public void testSendsEverythingToOtherEpochs() {
+        final StatusLedger lobby = new StatusLedger(60000);
+        final StatusLedger restarted = new StatusLedger(60000);
+        final StatusReplica replica = new StatusReplica();
+        replica.apply(PLAYER, "lobby", lobby.sync(PLAYER, statuses(20, "SURVIVAL"), replica.request(PLAYER, "lobby")));
+
+        final StatusPayload.SyncResponse response = restarted.sync(PLAYER, statuses(20, "SURVIVAL"),
+                replica.request(PLAYER, "lobby"));
+        Assertions.assertEquals(restarted.getEpoch(), response.epoch());
+        Assertions.assertEquals(2, response.statuses().size());
+    }
+
+    @Test
+    public void testForgetsDepartedPlayersAfterRetention() {
+        final StatusLedger ledger = new StatusLedger(1000);
+        final StatusReplica replica = new StatusReplica();
+        replica.apply(PLAYER, "lobby", ledger.sync(PLAYER, statuses(20, "SURVIVAL"), replica.request(PLAYER, "lobby")));
+
+        // Coming back within the retention time only costs the changes
+        ledger.depart(PLAYER, 0);
+        ledger.depart(UUID.randomUUID(), 500);
+        ledger.arrive(PLAYER);
+        Assertions.assertTrue(ledger.sync(PLAYER, statuses(20, "SURVIVAL"),
+                replica.request(PLAYER, "lobby")).statuses().isEmpty());
+
+        // After it, the player's statuses are stamped afresh and sent again
+        ledger.depart(PLAYER, 1000);
+        ledger.depart(UUID.randomUUID(), 2000);
+        final StatusPayload.SyncResponse response = ledger.sync(PLAYER, statuses(20, "SURVIVAL"),
+                replica.request(PLAYER, "lobby"));
+        Assertions.assertEquals(2, response.statuses().size());
+        Assertions.assertEquals(statuses(20, "SURVIVAL"), replica.apply(PLAYER, "lobby", response));
+    }
+
+    @Test
+    public void testIgnoresOutdatedResponses() {
+        final StatusLedger ledger = new StatusLedger(60000);
+        final StatusReplica replica = new StatusReplica();
+        final StatusPayload.SyncResponse first = ledger.sync(PLAYER, statuses(20, "SURVIVAL"),
+                StatusPayload.SyncRequest.FULL);
+        final StatusPayload.SyncResponse second = ledger.sync(PLAYER, statuses(15, "SURVIVAL"),
+                StatusPayload.SyncRequest.FULL);
+
+        Assertions.assertNotNull(replica.apply(PLAYER, "lobby", second));
+        Assertions.assertNull(replica.apply(PLAYER, "lobby", first));
+        Assertions.assertEquals(second.version(), replica.request(PLAYER, "lobby").version());
+    }
+
+}
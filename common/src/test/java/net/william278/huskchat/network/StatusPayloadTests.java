@@ -0,0 +1,54 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import net.william278.huskchat.event.PlayerStatusChangeEvent.StatusType;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+public class StatusPayloadTests {
+
+    // Statuses backends report that the getters of proxy-side PlayerInfo read, and how they are kept up to date
+    private static final List<StatusType> UPDATED_STATUSES = List.of(
+            StatusType.GAME_MODE, StatusType.SNEAKING, StatusType.FLYING);
+    private static final List<StatusType> HEALTH_STATUSES = List.of(StatusType.HEALTH, StatusType.MAX_HEALTH);
+    private static final List<StatusType> SYNCED_STATUSES = List.of(
+            StatusType.HEALTH, StatusType.MAX_HEALTH, StatusType.FOOD_LEVEL, StatusType.EXPERIENCE_LEVEL,
+            StatusType.GAME_MODE, StatusType.SNEAKING, StatusType.FLYING, StatusType.WORLD);
+
+    @Test
+    public void testDefaultSubscriptionKeepsPlayerInfoLive() {
+        final StatusPayload.Subscription subscription = StatusPayload.Subscription.DEFAULT;
+        for (StatusType statusType : UPDATED_STATUSES) {
+            Assertions.assertTrue(subscription.includesUpdate(statusType));
+        }
+        Assertions.assertTrue(subscription.includes(PlayerStatusMessage.MessageType.HEALTH_CHANGE));
+        for (StatusType statusType : HEALTH_STATUSES) {
+            Assertions.assertTrue(subscription.includes(statusType));
+        }
+        Assertions.assertTrue(subscription.includes(PlayerStatusMessage.MessageType.SYNC_RESPONSE));
+        for (StatusType statusType : SYNCED_STATUSES) {
+            Assertions.assertTrue(subscription.includes(statusType));
+        }
+    }
+
+}
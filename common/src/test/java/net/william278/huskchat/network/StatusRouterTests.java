@@ -0,0 +1,103 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.network;
+
+import net.william278.huskchat.user.OnlineUser;
+import net.william278.huskchat.user.TestOnlineUser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.logging.Level;
+
+public class StatusRouterTests {
+
+    private final OnlineUser player = new TestOnlineUser();
+    private final List<String> warnings = new ArrayList<>();
+
+    private void log(Level level, String message) {
+        Assertions.assertEquals(Level.WARNING, level);
+        warnings.add(message);
+    }
+
+    private Optional<OnlineUser> lookup(UUID uuid) {
+        return uuid.equals(player.getUuid()) ? Optional.of(player) : Optional.empty();
+    }
+
+    private PlayerStatusMessage move(UUID uuid, double toX) {
+        return PlayerStatusMessage.createLocationChange(uuid, player.getName(), "lobby",
+                new StatusPayload.Position("world", 0, 64, 0), new StatusPayload.Position("world", toX, 64, 0));
+    }
+
+    @Test
+    public void testRoutesByTypeAndPlayer() {
+        final List<PlayerStatusMessage> respawns = new ArrayList<>();
+        final List<PlayerStatusMessage> moves = new ArrayList<>();
+        final StatusRouter router = new StatusRouter(this::lookup, Runnable::run, 16, this::log)
+                .handle(PlayerStatusMessage.MessageType.PLAYER_RESPAWN, (user, message) -> {
+                    Assertions.assertEquals(player, user);
+                    respawns.add(message);
+                })
+                .handleQueued(PlayerStatusMessage.MessageType.LOCATION_CHANGE, (user, message) -> moves.add(message));
+
+        router.route(PlayerStatusMessage.createPlayerRespawn(player.getUuid(), player.getName(), "lobby", "DEATH"));
+        router.route(move(player.getUuid(), 1));
+        router.route(PlayerStatusMessage.createPlayerDeath(player.getUuid(), player.getName(), "lobby", "Fell", null));
+
+        Assertions.assertEquals(1, respawns.size());
+        Assertions.assertEquals(1, moves.size());
+    }
+
+    @Test
+    public void testIgnoresUnknownPlayers() {
+        final List<PlayerStatusMessage> moves = new ArrayList<>();
+        final StatusRouter router = new StatusRouter(this::lookup, Runnable::run, 16, this::log)
+                .handleQueued(PlayerStatusMessage.MessageType.LOCATION_CHANGE, (user, message) -> moves.add(message));
+
+        router.route(move(UUID.randomUUID(), 1));
+        Assertions.assertTrue(moves.isEmpty());
+    }
+
+    @Test
+    public void testDropsOldestWhenQueueIsFull() {
+        final List<Runnable> tasks = new ArrayList<>();
+        final List<PlayerStatusMessage> moves = new ArrayList<>();
+        final StatusRouter router = new StatusRouter(this::lookup, tasks::add, 2, this::log)
+                .handleQueued(PlayerStatusMessage.MessageType.LOCATION_CHANGE, (user, message) -> moves.add(message));
+
+        for (int x = 1; x <= 5; x++) {
+            router.route(move(player.getUuid(), x));
+        }
+        Assertions.assertEquals(1, tasks.size());
+        Assertions.assertEquals(3, router.getDropped());
+        Assertions.assertEquals(1, warnings.size());
+        Assertions.assertTrue(warnings.get(0).contains(" 1 "));
+
+        tasks.get(0).run();
+        Assertions.assertEquals(List.of(move(player.getUuid(), 4).getPayload(), move(player.getUuid(), 5).getPayload()),
+                moves.stream().map(PlayerStatusMessage::getPayload).toList());
+        Assertions.assertEquals(2, warnings.size());
+        Assertions.assertTrue(warnings.get(1).contains(" 2 "));
+    }
+
+}
@@ -0,0 +1,52 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.placeholders;
+
+import net.william278.huskchat.user.OnlineUser;
+import net.william278.huskchat.user.TestOnlineUser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DefaultReplacerTests {
+
+    // Only placeholders that do not need the plugin instance are rendered here
+    private String render(String format, OnlineUser player) {
+        return DefaultReplacer.Template.parse(format).render(null, player);
+    }
+
+    @Test
+    public void testReplacesPlaceholders() {
+        final OnlineUser player = new TestOnlineUser();
+        Assertions.assertEquals("[5] " + player.getUuid() + ": ", render("[%ping%] %uuid%: ", player));
+    }
+
+    @Test
+    public void testLeavesUnknownPlaceholders() {
+        final OnlineUser player = new TestOnlineUser();
+        Assertions.assertEquals("100% %unknown% 5%", render("100% %unknown% %ping%%", player));
+        Assertions.assertEquals("%5", render("%%ping%", player));
+    }
+
+    @Test
+    public void testEscapesUnderscores() {
+        Assertions.assertEquals("a_\\_b", render("a__b", new TestOnlineUser()));
+    }
+
+}
@@ -0,0 +1,78 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.user;
+
+import net.william278.huskchat.HuskChat;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+public class JournalUserCacheStorageTests {
+
+    private static final HuskChat PLUGIN = (HuskChat) Proxy.newProxyInstance(HuskChat.class.getClassLoader(),
+            new Class<?>[]{HuskChat.class}, (proxy, method, args) -> null);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testKeepsChannelsSetDuringCompaction() throws Exception {
+        final JournalUserCacheStorage storage = new JournalUserCacheStorage(PLUGIN, directory);
+        storage.load();
+        final UUID player = UUID.randomUUID();
+        storage.setPlayerChannel(player, "global");
+
+        // Change the channel again while the compaction is writing the previous one
+        storage.afterCompactionSnapshot(() -> storage.setPlayerChannel(player, "local"));
+        storage.flush();
+        storage.afterCompactionSnapshot(null);
+        Assertions.assertEquals("local", storage.lookupPlayerChannel(player));
+        storage.close();
+
+        final JournalUserCacheStorage reloaded = new JournalUserCacheStorage(PLUGIN, directory);
+        reloaded.load();
+        Assertions.assertEquals("local", reloaded.lookupPlayerChannel(player));
+        reloaded.close();
+    }
+
+    @Test
+    public void testMovesCorruptJournalAside() throws Exception {
+        Files.write(directory.resolve(JournalUserCacheStorage.FILE_NAME), new byte[]{1, 2});
+        final JournalUserCacheStorage storage = new JournalUserCacheStorage(PLUGIN, directory);
+        Assertions.assertThrows(IOException.class, storage::load);
+        storage.moveAside();
+
+        final JournalUserCacheStorage reset = new JournalUserCacheStorage(PLUGIN, directory);
+        Assertions.assertTrue(reset.load().playerChannels.isEmpty());
+        reset.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            Assertions.assertTrue(files.anyMatch(file -> file.getFileName().toString()
+                    .startsWith(JournalUserCacheStorage.FILE_NAME + ".corrupt-")));
+        }
+    }
+
+}
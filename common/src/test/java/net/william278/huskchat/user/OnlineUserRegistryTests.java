@@ -0,0 +1,127 @@
+/*
+ * This file is part of HuskChat, licensed under the Apache License 2.0.
+ *
+ *  Copyright (c) William278 <will27528@gmail.com>
+ *  Copyright (c) contributors
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package net.william278.huskchat.user;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+public class OnlineUserRegistryTests {
+
+    OnlineUserRegistry registry = new OnlineUserRegistry();
+
+    private OnlineUser register() {
+        final TestOnlineUser user = new TestOnlineUser();
+        return registry.adapt(user.getUuid(), TestOnlineUser.class, registered -> true, () -> user);
+    }
+
+    @Test
+    public void testServerMembership() {
+        final OnlineUser first = register();
+        final OnlineUser second = register();
+        registry.setServer(first, "lobby");
+        registry.setServer(second, "lobby");
+        Assertions.assertEquals(List.of(first, second), registry.getServerMembers("lobby"));
+        Assertions.assertTrue(registry.getServerMembers("survival").isEmpty());
+    }
+
+    @Test
+    public void testServerSwitchMovesMember() {
+        final OnlineUser player = register();
+        registry.setServer(player, "lobby");
+        registry.setServer(player, "survival");
+        Assertions.assertTrue(registry.getServerMembers("lobby").isEmpty());
+        Assertions.assertEquals(List.of(player), registry.getServerMembers("survival"));
+        Assertions.assertEquals("survival", registry.getServer(player.getUuid()).orElseThrow());
+    }
+
+    @Test
+    public void testUnregisterRemovesMember() {
+        final OnlineUser player = register();
+        registry.setServer(player, "lobby");
+        registry.unregister(player);
+        Assertions.assertTrue(registry.getServerMembers("lobby").isEmpty());
+        Assertions.assertTrue(registry.getServer(player.getUuid()).isEmpty());
+    }
+
+    @Test
+    public void testLateUnregisterKeepsReconnectedUser() {
+        final OnlineUser first = register();
+        registry.setServer(first, "lobby");
+        final TestOnlineUser second = new TestOnlineUser(first.getUuid());
+        registry.adapt(first.getUuid(), TestOnlineUser.class, registered -> registered == second, () -> second);
+        registry.setServer(second, "survival");
+
+        registry.unregister(first);
+        Assertions.assertEquals(second, registry.get(first.getUuid()).orElseThrow());
+        Assertions.assertEquals("survival", registry.getServer(first.getUuid()).orElseThrow());
+        Assertions.assertEquals(List.of(second), registry.getUsers(registry.getServerSlots("survival")));
+    }
+
+    @Test
+    public void testIgnoresServerOfUnregisteredUser() {
+        final OnlineUser player = register();
+        registry.unregister(player);
+        registry.setServer(player, "lobby");
+        Assertions.assertTrue(registry.getServerMembers("lobby").isEmpty());
+        Assertions.assertEquals(-1, registry.getSlot(player.getUuid()));
+        Assertions.assertTrue(registry.getOnlineSlots().isEmpty());
+    }
+
+    @Test
+    public void testSnapshotIsImmutable() {
+        final OnlineUser player = register();
+        registry.setServer(player, "lobby");
+        final List<OnlineUser> snapshot = registry.getServerMembers("lobby");
+        registry.setServer(register(), "lobby");
+        Assertions.assertEquals(1, snapshot.size());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> snapshot.add(player));
+    }
+
+    @Test
+    public void testSlotsAreReused() {
+        final OnlineUser first = register();
+        registry.setServer(first, "lobby");
+        final int slot = registry.getSlot(first.getUuid());
+        registry.unregister(first);
+        Assertions.assertEquals(-1, registry.getSlot(first.getUuid()));
+
+        final OnlineUser second = register();
+        registry.setServer(second, "lobby");
+        Assertions.assertEquals(slot, registry.getSlot(second.getUuid()));
+    }
+
+    @Test
+    public void testAudienceAlgebra() {
+        final OnlineUser lobby = register();
+        final OnlineUser survival = register();
+        registry.setServer(lobby, "lobby");
+        registry.setServer(survival, "survival");
+
+        final BitSet audience = registry.getOnlineSlots();
+        registry.retainPermitted(audience, "huskchat.channel.test.receive");
+        registry.removeServers(audience, "survival"::equals);
+        Assertions.assertEquals(List.of(lobby), registry.getUsers(audience));
+        Assertions.assertEquals(List.of(survival), registry.getUsers(registry.getServerSlots("survival")));
+    }
+
+}
@@ -36,7 +36,11 @@ public class TestOnlineUser extends OnlineUser {
     private final static int TEST_PLAYER_SERVER_PLAYER_COUNT = 1;
 
     public TestOnlineUser() {
-        super(UUID.randomUUID().toString().split("-")[0], UUID.randomUUID());
+        this(UUID.randomUUID());
+    }
+
+    public TestOnlineUser(@NotNull UUID uuid) {
+        super(uuid.toString().split("-")[0], uuid);
     }
 
     @Override
@@ -22,6 +22,7 @@ package net.william278.huskchat;
 import com.google.inject.Inject;
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
 import com.velocitypowered.api.plugin.Plugin;
 import com.velocitypowered.api.plugin.PluginContainer;
 import com.velocitypowered.api.plugin.annotation.DataDirectory;
@@ -41,17 +42,22 @@ import net.william278.huskchat.config.Settings;
 import net.william278.huskchat.discord.DiscordHook;
 import net.william278.huskchat.event.VelocityEventProvider;
 import net.william278.huskchat.filter.ChatFilter;
+import net.william278.huskchat.filter.FilterChain;
 import net.william278.huskchat.getter.DataGetter;
 import net.william278.huskchat.getter.DefaultDataGetter;
 import net.william278.huskchat.getter.LuckPermsDataGetter;
+import net.william278.huskchat.listener.ChatMailbox;
 import net.william278.huskchat.listener.VelocityEventChatListener;
 import net.william278.huskchat.listener.VelocityPacketChatListener;
 import net.william278.huskchat.listener.VelocityPlayerListener;
 import net.william278.huskchat.placeholders.DefaultReplacer;
 import net.william278.huskchat.placeholders.PAPIProxyBridgeReplacer;
+import net.william278.huskchat.placeholders.PlaceholderPipeline;
 import net.william278.huskchat.placeholders.PlaceholderReplacer;
 import net.william278.huskchat.user.OnlineUser;
+import net.william278.huskchat.user.OnlineUserRegistry;
 import net.william278.huskchat.user.UserCache;
+import net.william278.huskchat.user.UserCacheWriter;
 import net.william278.huskchat.user.VelocityUser;
 import org.bstats.velocity.Metrics;
 import org.jetbrains.annotations.NotNull;
@@ -77,7 +83,16 @@ public class VelocityHuskChat implements HuskChat, VelocityEventProvider {
     private final Path configDirectory;
     private final ProxyServer server;
     private final List<ChatFilter> filtersAndReplacers = new ArrayList<>();
+    @Setter
+    private FilterChain.Compiled filterChains = FilterChain.Compiled.EMPTY;
     private final List<PlaceholderReplacer> placeholderReplacers = new ArrayList<>();
+    private PlaceholderPipeline placeholderPipeline;
+    private ChatMailbox chatMailbox;
+    @Getter(AccessLevel.NONE)
+    private net.william278.huskchat.api.VelocityHuskChatExtendedAPI extendedAPI;
+    private final OnlineUserRegistry userRegistry = new OnlineUserRegistry();
+    @Getter(AccessLevel.NONE)
+    private final com.google.gson.Gson gson = new com.google.gson.Gson();
 
     @Setter
     private Settings settings;
@@ -90,6 +105,8 @@ public class VelocityHuskChat implements HuskChat, VelocityEventProvider {
     @Setter
     private UserCache.Editor userCache;
     @Setter
+    private UserCacheWriter userCacheWriter;
+    @Setter
     @Getter(AccessLevel.NONE)
     private DiscordHook discordHook;
     private DataGetter dataGetter;
@@ -118,18 +135,20 @@ public class VelocityHuskChat implements HuskChat, VelocityEventProvider {
 
         // Setup player data getter
         if (isPluginPresent("luckperms")) {
-            this.dataGetter = new LuckPermsDataGetter();
+            this.dataGetter = new LuckPermsDataGetter(this);
         } else {
             this.dataGetter = new DefaultDataGetter();
         }
 
         // Setup PlaceholderParser
+        this.placeholderPipeline = new PlaceholderPipeline(getSettings().getPlaceholder());
         this.placeholderReplacers.add(new DefaultReplacer(this));
         if (getSettings().getPlaceholder().isUsePapi() && isPluginPresent("papiproxybridge")) {
             this.placeholderReplacers.add(new PAPIProxyBridgeReplacer(this));
         }
 
         // Register events
+        this.chatMailbox = new ChatMailbox(this, getSettings().getChatThreads());
         getProxyServer().getEventManager().register(this, new VelocityPlayerListener(this));
         if (getSettings().isUsePacketListening()) {
             new VelocityPacketChatListener(this).register();
@@ -158,6 +177,23 @@ public class VelocityHuskChat implements HuskChat, VelocityEventProvider {
         log(Level.INFO, "Enabled HuskChat version " + getVersion());
     }
 
+    @Subscribe
+    public void onProxyShutdown(@NotNull ProxyShutdownEvent event) {
+        // Flush pending user cache changes and stop filters
+        this.closeUserCache();
+        this.closeFilters();
+        if (placeholderPipeline != null) {
+            placeholderPipeline.close();
+        }
+        placeholderReplacers.forEach(PlaceholderReplacer::close);
+        if (chatMailbox != null) {
+            chatMailbox.close();
+        }
+        if (extendedAPI != null) {
+            extendedAPI.close();
+        }
+    }
+
     @Override
     public Optional<DiscordHook> getDiscordHook() {
         return Optional.ofNullable(discordHook);
@@ -198,6 +234,10 @@ public class VelocityHuskChat implements HuskChat, VelocityEventProvider {
     @Override
     @NotNull
     public Collection<OnlineUser> getOnlinePlayersOnServer(@NotNull OnlineUser user) {
+        final Optional<String> server = getUserRegistry().getServer(user.getUuid());
+        if (server.isPresent()) {
+            return getUserRegistry().getServerMembers(server.get());
+        }
         return ((VelocityUser) user).getPlayer().getCurrentServer()
                 .map(conn -> conn.getServer().getPlayersConnected().stream()
                         .map(player -> (OnlineUser) VelocityUser.adapt(player, this)).toList())
@@ -289,7 +329,7 @@ public class VelocityHuskChat implements HuskChat, VelocityEventProvider {
      */
     @NotNull
     public com.google.gson.Gson getGson() {
-        return new com.google.gson.Gson();
+        return gson;
     }
 
     /**
@@ -329,8 +369,7 @@ public class VelocityHuskChat implements HuskChat, VelocityEventProvider {
 
     private void registerExtendedAPI() {
         // Register Extended API
-        net.william278.huskchat.api.VelocityHuskChatExtendedAPI extendedAPI =
-            new net.william278.huskchat.api.VelocityHuskChatExtendedAPI(this);
+        this.extendedAPI = new net.william278.huskchat.api.VelocityHuskChatExtendedAPI(this);
         net.william278.huskchat.api.HuskChatExtendedAPI.setInstance(extendedAPI);
 
         // Register player status listener
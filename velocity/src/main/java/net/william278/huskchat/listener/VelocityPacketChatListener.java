@@ -113,7 +113,10 @@ public class VelocityPacketChatListener {
                 super.channelRead(ctx, packet);
                 return;
             }
-            this.handleChat(message.get(), (passthrough) -> super.channelRead(ctx, packet));
+            // Forward the packet on the channel's event loop once the chat has been processed
+            this.handleChat(message.get(), (passthrough) -> ctx.channel().eventLoop().execute(
+                    () -> ctx.fireChannelRead(packet)
+            ));
         }
 
         @NotNull
@@ -135,8 +138,8 @@ public class VelocityPacketChatListener {
         }
 
         private void handleChat(@NotNull String message, @NotNull ThrowingConsumer<Void> ifAllowed) {
-            this.dispatchEvent(message)
-                    .thenApply(event -> event.getResult().isAllowed() && handlePlayerChat(event))
+            plugin.getChatMailbox().submit(player.getUniqueId(), () -> this.dispatchEvent(message)
+                            .thenApply(event -> event.getResult().isAllowed() && handlePlayerChat(event)))
                     .thenAccept(allowed -> {
                         if (allowed) {
                             ifAllowed.accept(null);
@@ -21,6 +21,7 @@ package net.william278.huskchat.listener;
 
 import com.velocitypowered.api.event.Subscribe;
 import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.PostLoginEvent;
 import com.velocitypowered.api.event.player.ServerConnectedEvent;
 import net.william278.huskchat.HuskChat;
 import net.william278.huskchat.user.VelocityUser;
@@ -32,20 +33,28 @@ public class VelocityPlayerListener extends PlayerListener {
         super(plugin);
     }
 
+    @Subscribe
+    public void onPlayerLogin(PostLoginEvent e) {
+        VelocityUser.adapt(e.getPlayer(), plugin);
+    }
+
     @Subscribe
     public void onPlayerChangeServer(ServerConnectedEvent e) {
-        if (e.getPreviousServer().isEmpty()) {
-            handlePlayerJoin(VelocityUser.adapt(e.getPlayer(), plugin));
-        }
         final String server = e.getServer().getServerInfo().getName();
         final VelocityUser player = VelocityUser.adapt(e.getPlayer(), plugin);
+        plugin.getUserRegistry().setServer(player, server);
+        if (e.getPreviousServer().isEmpty()) {
+            handlePlayerJoin(player);
+        }
         handlePlayerSwitchServer(player, server);
     }
 
     @Subscribe
     public void onPlayerQuitNetwork(DisconnectEvent e) {
         if (e.getLoginStatus() == DisconnectEvent.LoginStatus.SUCCESSFUL_LOGIN) {
-            handlePlayerQuit(VelocityUser.adapt(e.getPlayer(), plugin));
+            final VelocityUser player = VelocityUser.adapt(e.getPlayer(), plugin);
+            handlePlayerQuit(player);
+            plugin.getUserRegistry().unregister(player);
         }
     }
 
@@ -20,6 +20,7 @@
 package net.william278.huskchat.listener;
 
 import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
 import com.velocitypowered.api.event.connection.PluginMessageEvent;
 import com.velocitypowered.api.event.player.ServerConnectedEvent;
 import com.velocitypowered.api.proxy.Player;
@@ -55,11 +56,10 @@ public class VelocityPlayerStatusListener {
         }
 
         try {
-            String json = new String(event.getData());
-            PlayerStatusMessage message = plugin.getGson().fromJson(json, PlayerStatusMessage.class);
-            
-            // 处理来自后端服务器的消息
-            extendedAPI.handlePlayerStatusMessage(serverConnection.getServerInfo().getName(), message);
+            // 后端服务器会将多条消息合并为一帧发送
+            for (PlayerStatusMessage message : extendedAPI.getStatusCodec().decodeAll(event.getData())) {
+                extendedAPI.handlePlayerStatusMessage(serverConnection.getServerInfo().getName(), message);
+            }
             
         } catch (Exception e) {
             plugin.log(java.util.logging.Level.WARNING, "Failed to handle plugin message from " + 
@@ -83,4 +83,10 @@ public class VelocityPlayerStatusListener {
             }
         }).delay(java.time.Duration.ofSeconds(1)).schedule(); // 延迟1秒确保连接稳定
     }
+
+    @Subscribe
+    public void onDisconnect(DisconnectEvent event) {
+        // 玩家离开代理服务器时，清除已同步的状态
+        extendedAPI.forgetPlayerStatusSync(event.getPlayer().getUniqueId());
+    }
 }
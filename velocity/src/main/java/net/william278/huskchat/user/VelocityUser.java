@@ -59,9 +59,21 @@ public class VelocityUser extends OnlineUser {
         statusCache.put(PlayerStatusChangeEvent.StatusType.VANISHED, false);
     }
 
+    /**
+     * Adapts a velocity {@link Player} to its canonical cross-platform {@link OnlineUser} object
+     *
+     * @param player {@link Player} to adapt
+     * @param plugin the plugin instance
+     * @return The registered {@link OnlineUser} object
+     */
     @NotNull
     public static VelocityUser adapt(@NotNull Player player, @NotNull HuskChat plugin) {
-        return new VelocityUser(player, plugin);
+        if (!player.isActive()) {
+            return plugin.getUserRegistry().find(player.getUniqueId(), VelocityUser.class, user -> user.player == player)
+                    .orElseGet(() -> new VelocityUser(player, plugin));
+        }
+        return plugin.getUserRegistry().adapt(player.getUniqueId(), VelocityUser.class,
+                user -> user.player == player, () -> new VelocityUser(player, plugin));
     }
 
     @Override
@@ -81,6 +93,10 @@ public class VelocityUser extends OnlineUser {
 
     @Override
     public int getPlayersOnServer() {
+        final Optional<String> server = plugin.getUserRegistry().getServer(getUuid());
+        if (server.isPresent()) {
+            return plugin.getUserRegistry().getServerMembers(server.get()).size();
+        }
         return player.getCurrentServer().map(conn -> conn.getServer().getPlayersConnected().size()).orElse(0);
     }
 
@@ -89,11 +105,13 @@ public class VelocityUser extends OnlineUser {
         if (permission == null) {
             return allowByDefault;
         }
-        final TriState state = player.getPermissionValue(permission).toAdventureTriState();
-        if (state == TriState.NOT_SET) {
-            return allowByDefault;
-        }
-        return state == TriState.TRUE;
+        return checkCachedPermission(permission, allowByDefault, () -> {
+            final TriState state = player.getPermissionValue(permission).toAdventureTriState();
+            if (state == TriState.NOT_SET) {
+                return allowByDefault;
+            }
+            return state == TriState.TRUE;
+        });
     }
 
     @NotNull